@@ -0,0 +1,487 @@
+/**
+ * LIZENZBEDINGUNGEN - Seanox Software Solutions ist ein Open-Source-Projekt,
+ * im Folgenden Seanox Software Solutions oder kurz Seanox genannt.
+ * Diese Software unterliegt der Version 2 der Apache License.
+ *
+ * Review, text based code analyzer
+ * Copyright (C) 2024 Seanox Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+import com.seanox.review.Review;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Microbenchmarks for the hot paths of Review.
+ * The benchmarks use the fixtures from ./test and synthetic, scaled inputs
+ * derived from them. Like JMH, each benchmark is executed in warmup and
+ * measurement iterations of a fixed duration, the result is the average time
+ * per operation with the standard deviation over the measurement iterations.
+ * Review is a single class with private inner classes, so the benchmarks
+ * access them via method handles. The handles are resolved once before the
+ * measurements and are invoked exactly, with the private classes as Object,
+ * so that no reflective lookup, boxing or argument array is measured.
+ *
+ * The benchmarks are executed with the ant target benchmark. System
+ * properties control the execution:
+ *
+ *     benchmark.filter      only benchmarks whose name contains the text
+ *     benchmark.time        duration of an iteration in milliseconds (1000)
+ *     benchmark.warmups     number of warmup iterations (3)
+ *     benchmark.iterations  number of measurement iterations (5)
+ *     benchmark.scale       factor for the synthetic inputs (200)
+ *
+ * @author  Seanox Software Solutions
+ * @version 1.5.1 20240602
+ */
+public class ReviewBenchmark {
+
+    /** directory of the fixtures */
+    private static final File TEST = new File("./test");
+
+    /** only benchmarks whose name contains the filter */
+    private static final String FILTER = System.getProperty("benchmark.filter", "");
+
+    /** duration of an iteration in milliseconds */
+    private static final long TIME = Long.getLong("benchmark.time", 1000);
+
+    /** number of warmup iterations */
+    private static final int WARMUPS = Integer.getInteger("benchmark.warmups", 3);
+
+    /** number of measurement iterations */
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 5);
+
+    /** factor for the synthetic inputs */
+    private static final int SCALE = Integer.getInteger("benchmark.scale", 200);
+
+    /** original system output stream for the results */
+    private static final PrintStream OUTPUT = System.out;
+
+    /** sink for the results of the operations, so that they are not omitted */
+    private static volatile Object sink;
+
+    /** Operation of a benchmark. */
+    private interface Operation {
+        Object run() throws Throwable;
+    }
+
+    /**
+     * Returns a private inner class of Review.
+     * @param  name name of the inner class
+     * @return the inner class
+     * @throws ClassNotFoundException
+     *     In case the class does not exist.
+     */
+    private static Class<?> type(String name)
+            throws ClassNotFoundException {
+        return Class.forName("com.seanox.review.Review$" + name);
+    }
+
+    /**
+     * Returns the type as it is used for the exact invocation of the method
+     * handles. The inner classes of Review and arrays of them are not
+     * accessible and are replaced by Object, other types remain unchanged.
+     * @param  type type
+     * @return the type for the exact invocation
+     */
+    private static Class<?> erase(Class<?> type) {
+        Class<?> component = type;
+        while (component.isArray())
+            component = component.getComponentType();
+        return component.getName().startsWith("com.seanox.review.Review$") ? Object.class : type;
+    }
+
+    /**
+     * Adapts a method handle to the types of the exact invocation.
+     * @param  handle method handle
+     * @return the adapted method handle
+     */
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        type = type.changeReturnType(ReviewBenchmark.erase(type.returnType()));
+        for (int index = 0; index < type.parameterCount(); index++)
+            type = type.changeParameterType(index, ReviewBenchmark.erase(type.parameterType(index)));
+        return handle.asType(type);
+    }
+
+    /**
+     * Returns a method handle to read a field.
+     * @param  type type
+     * @param  name name of the field
+     * @return the method handle of the getter
+     * @throws ReflectiveOperationException
+     *     In case the field does not exist.
+     */
+    private static MethodHandle getter(Class<?> type, String name)
+            throws ReflectiveOperationException {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return ReviewBenchmark.erase(MethodHandles.lookup().unreflectGetter(field));
+    }
+
+    /**
+     * Returns a method handle to write a field.
+     * @param  type type
+     * @param  name name of the field
+     * @return the method handle of the setter
+     * @throws ReflectiveOperationException
+     *     In case the field does not exist.
+     */
+    private static MethodHandle setter(Class<?> type, String name)
+            throws ReflectiveOperationException {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return ReviewBenchmark.erase(MethodHandles.lookup().unreflectSetter(field));
+    }
+
+    /**
+     * Returns a method handle of a method.
+     * @param  type  type
+     * @param  name  name of the method
+     * @param  types parameter types
+     * @return the method handle
+     * @throws ReflectiveOperationException
+     *     In case the method does not exist.
+     */
+    private static MethodHandle method(Class<?> type, String name, Class<?>... types)
+            throws ReflectiveOperationException {
+        Method method = type.getDeclaredMethod(name, types);
+        method.setAccessible(true);
+        return ReviewBenchmark.erase(MethodHandles.lookup().unreflect(method));
+    }
+
+    /**
+     * Returns a method handle of a constructor.
+     * @param  type  type
+     * @param  types parameter types
+     * @return the method handle
+     * @throws ReflectiveOperationException
+     *     In case the constructor does not exist.
+     */
+    private static MethodHandle constructor(Class<?> type, Class<?>... types)
+            throws ReflectiveOperationException {
+        Constructor<?> constructor = type.getDeclaredConstructor(types);
+        constructor.setAccessible(true);
+        return ReviewBenchmark.erase(MethodHandles.lookup().unreflectConstructor(constructor));
+    }
+
+    /**
+     * Executes an operation until the duration of an iteration has elapsed.
+     * @param  operation operation
+     * @return the average time per operation in nanoseconds
+     * @throws Throwable
+     *     In the case of occurring errors.
+     */
+    private static double iterate(Operation operation)
+            throws Throwable {
+        long count = 0;
+        long start = System.nanoTime();
+        long end = start +TIME *1000000L;
+        long time;
+        do {
+            ReviewBenchmark.sink = operation.run();
+            count++;
+        } while ((time = System.nanoTime()) < end);
+        return (time -start) /(double)count;
+    }
+
+    /**
+     * Performs a benchmark and outputs the result.
+     * @param  name      name of the benchmark
+     * @param  operation operation
+     * @throws Throwable
+     *     In the case of occurring errors.
+     */
+    private static void measure(String name, Operation operation)
+            throws Throwable {
+        if (!name.contains(ReviewBenchmark.FILTER))
+            return;
+        for (int loop = 0; loop < ReviewBenchmark.WARMUPS; loop++)
+            ReviewBenchmark.iterate(operation);
+        double[] scores = new double[ReviewBenchmark.ITERATIONS];
+        double average = 0;
+        for (int loop = 0; loop < scores.length; loop++)
+            average += scores[loop] = ReviewBenchmark.iterate(operation) /1000d;
+        average /= Math.max(1, scores.length);
+        double deviation = 0;
+        for (double score : scores)
+            deviation += (score -average) *(score -average);
+        deviation = Math.sqrt(deviation /Math.max(1, scores.length));
+        ReviewBenchmark.OUTPUT.println(String.format(Locale.ROOT, "%-36s %5d %14.3f %12.3f  us/op",
+                name, scores.length, average, deviation));
+    }
+
+    /**
+     * Creates a pattern file with the passed number of sections.
+     * The sections are taken repeatedly from the fixtures.
+     * @param  sections number of sections
+     * @return the created pattern file
+     * @throws Exception
+     *     In the case of occurring errors.
+     */
+    private static File createPatternFile(int sections)
+            throws Exception {
+        List<String> templates = new ArrayList<>();
+        for (String name : new String[] {"java-code-pattern.txt", "java-formating-pattern.txt"}) {
+            String content = new String(Files.readAllBytes(new File(ReviewBenchmark.TEST, name).toPath()));
+            content = content.replaceAll("(?m)^[ \\t]*#.*$", "");
+            for (String section : content.trim().split("(\\s*\\R\\s*){2,}"))
+                templates.add(section.trim());
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int loop = 0; loop < sections; loop++)
+            builder.append(templates.get(loop %templates.size())).append("\n\n");
+        File file = File.createTempFile("review-benchmark-", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), builder.toString().getBytes());
+        return file;
+    }
+
+    /**
+     * Main entry of the benchmarks.
+     * @param  options start parameter (not used)
+     * @throws Throwable
+     *     In the case of occurring errors.
+     */
+    public static void main(String[] options)
+            throws Throwable {
+
+        Class<?> reviewType = Review.class;
+        Class<?> taskType = ReviewBenchmark.type("Task");
+        Class<?> sourceType = ReviewBenchmark.type("Source");
+        Class<?> linesType = ReviewBenchmark.type("Lines");
+        Class<?> conditionType = ReviewBenchmark.type("Condition");
+        Class<?> conditionTypeType = ReviewBenchmark.type("Condition$Type");
+        Class<?> includeType = ReviewBenchmark.type("Include");
+        Class<?> prefilterType = ReviewBenchmark.type("Prefilter");
+        Class<?> selectorType = ReviewBenchmark.type("Selector");
+        Class<?> mappingType = ReviewBenchmark.type("Mapping");
+        Class<?> engineType = ReviewBenchmark.type("Engine");
+        Class<?> settingsType = ReviewBenchmark.type("Settings");
+        Class<?> statisticsType = ReviewBenchmark.type("Statistics");
+        Class<?> quotaType = ReviewBenchmark.type("Quota");
+
+        MethodHandle readTasks = ReviewBenchmark.method(reviewType, "readTasks", File.class);
+        MethodHandle perform = ReviewBenchmark.method(taskType, "perform", sourceType)
+                .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        MethodHandle createFilePattern = ReviewBenchmark.method(taskType, "createFilePattern", Array.newInstance(conditionType, 0).getClass(), Class.class);
+        MethodHandle select = ReviewBenchmark.method(selectorType, "select", sourceType);
+        MethodHandle map = ReviewBenchmark.method(mappingType, "map", Path.class);
+        MethodHandle locateLine = ReviewBenchmark.method(linesType, "locateLine", int.class);
+        MethodHandle locateCharacter = ReviewBenchmark.method(linesType, "locateCharacter", int.class);
+        MethodHandle isCandidate = ReviewBenchmark.method(sourceType, "isCandidate", taskType);
+        MethodHandle scan = ReviewBenchmark.method(prefilterType, "scan", CharSequence.class);
+        MethodHandle review = ReviewBenchmark.method(engineType, "review", String.class, CharSequence.class);
+        MethodHandle sourceConstructor = ReviewBenchmark.constructor(sourceType, File.class, engineType, statisticsType);
+        MethodHandle linesConstructor = ReviewBenchmark.constructor(linesType, CharSequence.class);
+        MethodHandle includeConstructor = ReviewBenchmark.constructor(includeType, conditionTypeType, String.class);
+        MethodHandle excludeConstructor = ReviewBenchmark.constructor(ReviewBenchmark.type("Exclude"), conditionTypeType, String.class);
+        MethodHandle prefilterConstructor = ReviewBenchmark.constructor(prefilterType, List.class);
+        MethodHandle selectorConstructor = ReviewBenchmark.constructor(selectorType, List.class);
+        MethodHandle engineConstructor = ReviewBenchmark.constructor(engineType, List.class, settingsType);
+        MethodHandle settingsConstructor = ReviewBenchmark.constructor(settingsType, boolean.class, String.class, boolean.class,
+                long.class, long.class, int.class, int.class, int.class, int.class, boolean.class, quotaType);
+        MethodHandle statisticsConstructor = ReviewBenchmark.constructor(statisticsType);
+        MethodHandle sourceContent = ReviewBenchmark.getter(sourceType, "content");
+        MethodHandle sourceContentSetter = ReviewBenchmark.setter(sourceType, "content");
+        MethodHandle sourceOriginalSetter = ReviewBenchmark.setter(sourceType, "original");
+
+        // The settings are captured by the engine, PATCH and REMOVE change
+        // the content only with the setting replace, as with the option -x.
+        Object detectSettings = (Object)settingsConstructor.invokeExact(false, (String)null, false, 0L, 0L, 0, 0, 0, 64, false, (Object)null);
+        Object patchSettings = (Object)settingsConstructor.invokeExact(true, (String)null, false, 0L, 0L, 0, 0, 0, 64, false, (Object)null);
+        Object statistics = (Object)statisticsConstructor.invokeExact();
+
+        Object contentType = conditionTypeType.getEnumConstants()[1];
+        Object fileType = conditionTypeType.getEnumConstants()[0];
+
+        File javaFile = new File(ReviewBenchmark.TEST, "test.java").getCanonicalFile();
+        File cssFile = new File(ReviewBenchmark.TEST, "test.css").getCanonicalFile();
+        File sqlFile = new File(ReviewBenchmark.TEST, "test.sql").getCanonicalFile();
+        String javaContent = new String(Files.readAllBytes(javaFile.toPath()));
+        String cssContent = new String(Files.readAllBytes(cssFile.toPath()));
+        String javaScaled = javaContent.repeat(ReviewBenchmark.SCALE);
+
+        Object[] javaCodeTasks = (Object[])(Object)readTasks.invokeExact(new File(ReviewBenchmark.TEST, "java-code-pattern.txt"));
+        Object[] javaFormatingTasks = (Object[])(Object)readTasks.invokeExact(new File(ReviewBenchmark.TEST, "java-formating-pattern.txt"));
+        Object[] cssFormatingTasks = (Object[])(Object)readTasks.invokeExact(new File(ReviewBenchmark.TEST, "css-formating-pattern.txt"));
+        File syntheticPatternFile = ReviewBenchmark.createPatternFile(ReviewBenchmark.SCALE);
+
+        // Section with frequent matches of the primary pattern and several
+        // sub-patterns, which are checked for each match.
+        File conditionsPatternFile = File.createTempFile("review-benchmark-", ".txt");
+        conditionsPatternFile.deleteOnExit();
+        Files.write(conditionsPatternFile.toPath(), String.join("\n",
+                "- */.*/* + *.java",
+                "\\w[\\w.]* -^\\d -\\d{4,} +[a-z] -^(?:if|for|while|return|new)$ -[A-Z]{2,}\\s*$ +\\w{3,}",
+                "DETECT").getBytes());
+        Object[] conditionsTasks = (Object[])(Object)readTasks.invokeExact(conditionsPatternFile);
+
+        // Mapping requires characters that are decoded byte by byte, for the
+        // mapped file the other characters are replaced.
+        File mappedFile = File.createTempFile("review-benchmark-", ".java");
+        mappedFile.deleteOnExit();
+        Files.write(mappedFile.toPath(), javaScaled.replaceAll("[^\\x00-\\x7F]", "?").getBytes());
+        CharSequence javaMapped = (CharSequence)(Object)map.invokeExact(mappedFile.toPath());
+
+        // The findings of the reviews are not relevant for the benchmarks and
+        // are discarded, only the results of the benchmarks are output.
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        ReviewBenchmark.OUTPUT.println(String.format(Locale.ROOT, "%-36s %5s %14s %12s  %s",
+                "Benchmark", "Cnt", "Score", "Error", "Units"));
+
+        ReviewBenchmark.measure("readTasks.fixture", () ->
+                (Object)readTasks.invokeExact(new File(ReviewBenchmark.TEST, "java-formating-pattern.txt")));
+        ReviewBenchmark.measure("readTasks.scaled", () ->
+                (Object)readTasks.invokeExact(syntheticPatternFile));
+
+        ReviewBenchmark.measure("condition.content", () ->
+                (Object)includeConstructor.invokeExact(contentType, "(?i) +(private|protected|public)[^;\\r\\n]+="));
+        ReviewBenchmark.measure("condition.file", () ->
+                (Object)includeConstructor.invokeExact(fileType, "*/.*/*"));
+
+        Object conditions = Array.newInstance(conditionType, 2);
+        Array.set(conditions, 0, (Object)excludeConstructor.invokeExact(fileType, "*/.*/*"));
+        Array.set(conditions, 1, (Object)includeConstructor.invokeExact(fileType, "*.java"));
+        ReviewBenchmark.measure("createFilePattern", () ->
+                (Pattern)createFilePattern.invokeExact(conditions, includeType));
+        Object[] scaledTasks = (Object[])(Object)readTasks.invokeExact(syntheticPatternFile);
+        Object selector = (Object)selectorConstructor.invokeExact(Arrays.asList(javaFormatingTasks));
+        Object selectorEngine = (Object)engineConstructor.invokeExact(Arrays.asList(javaFormatingTasks), detectSettings);
+        Object javaSource = (Object)sourceConstructor.invokeExact(javaFile, selectorEngine, statistics);
+        Object sqlSource = (Object)sourceConstructor.invokeExact(sqlFile, selectorEngine, statistics);
+        Object scaledSelector = (Object)selectorConstructor.invokeExact(Arrays.asList(scaledTasks));
+        ReviewBenchmark.measure("selector.create.scaled", () ->
+                (Object)selectorConstructor.invokeExact(Arrays.asList(scaledTasks)));
+        ReviewBenchmark.measure("selector.accept", () ->
+                (BitSet)select.invokeExact(selector, javaSource));
+        ReviewBenchmark.measure("selector.reject", () ->
+                (BitSet)select.invokeExact(selector, sqlSource));
+        ReviewBenchmark.measure("selector.scaled", () ->
+                (BitSet)select.invokeExact(scaledSelector, javaSource));
+
+        ReviewBenchmark.measure("lines.index", () ->
+                (Object)linesConstructor.invokeExact((CharSequence)javaScaled));
+        ReviewBenchmark.measure("lines.index.mapped", () ->
+                (Object)linesConstructor.invokeExact(javaMapped));
+        Object lines = (Object)linesConstructor.invokeExact((CharSequence)javaScaled);
+        int step = Math.max(1, javaScaled.length() /1000);
+        ReviewBenchmark.measure("lines.locate", () -> {
+            long result = 0;
+            for (int position = 0; position < javaScaled.length(); position += step)
+                result += (int)locateLine.invokeExact(lines, position)
+                        +(int)locateCharacter.invokeExact(lines, position);
+            return result;
+        });
+
+        Object prefilter = (Object)prefilterConstructor.invokeExact(Arrays.asList(javaFormatingTasks));
+        ReviewBenchmark.measure("prefilter.create", () ->
+                (Object)prefilterConstructor.invokeExact(Arrays.asList(javaFormatingTasks)));
+        ReviewBenchmark.measure("prefilter.scan", () ->
+                (BitSet)scan.invokeExact(prefilter, (CharSequence)javaContent));
+        ReviewBenchmark.measure("prefilter.scan.scaled", () ->
+                (BitSet)scan.invokeExact(prefilter, (CharSequence)javaScaled));
+        ReviewBenchmark.measure("prefilter.scan.mapped", () ->
+                (BitSet)scan.invokeExact(prefilter, javaMapped));
+
+        Object engine = (Object)engineConstructor.invokeExact(Arrays.asList(javaFormatingTasks), patchSettings);
+        Object javaCodeEngine = (Object)engineConstructor.invokeExact(Arrays.asList(javaCodeTasks), detectSettings);
+        Object cssFormatingEngine = (Object)engineConstructor.invokeExact(Arrays.asList(cssFormatingTasks), detectSettings);
+        Object cssPatchEngine = (Object)engineConstructor.invokeExact(Arrays.asList(cssFormatingTasks), patchSettings);
+
+        ReviewBenchmark.measure("perform.detect.java", ReviewBenchmark.createPerform(
+                sourceConstructor, statistics, sourceContent, sourceContentSetter, sourceOriginalSetter, isCandidate, perform, javaCodeEngine, javaCodeTasks, javaFile, javaContent));
+        ReviewBenchmark.measure("perform.detect.java.scaled", ReviewBenchmark.createPerform(
+                sourceConstructor, statistics, sourceContent, sourceContentSetter, sourceOriginalSetter, isCandidate, perform, javaCodeEngine, javaCodeTasks, javaFile, javaScaled));
+        ReviewBenchmark.measure("perform.detect.java.mapped", ReviewBenchmark.createPerform(
+                sourceConstructor, statistics, sourceContent, sourceContentSetter, sourceOriginalSetter, isCandidate, perform, javaCodeEngine, javaCodeTasks, mappedFile, javaMapped));
+        ReviewBenchmark.measure("perform.detect.css", ReviewBenchmark.createPerform(
+                sourceConstructor, statistics, sourceContent, sourceContentSetter, sourceOriginalSetter, isCandidate, perform, cssFormatingEngine, cssFormatingTasks, cssFile, cssContent));
+        ReviewBenchmark.measure("perform.detect.conditions", ReviewBenchmark.createPerform(
+                sourceConstructor, statistics, sourceContent, sourceContentSetter, sourceOriginalSetter, isCandidate, perform,
+                (Object)engineConstructor.invokeExact(Arrays.asList(conditionsTasks), detectSettings), conditionsTasks, javaFile, javaScaled));
+
+        // The engine API as used by other applications, with the findings as
+        // objects instead of the output.
+        ReviewBenchmark.measure("engine.review.java", () ->
+                (List<?>)review.invokeExact(javaCodeEngine, javaFile.getPath(), (CharSequence)javaContent));
+        ReviewBenchmark.measure("engine.review.java.scaled", () ->
+                (List<?>)review.invokeExact(javaCodeEngine, javaFile.getPath(), (CharSequence)javaScaled));
+
+        // The changes of PATCH and REMOVE are only applied to the content of
+        // the source, the file itself is never written by Task.perform.
+        ReviewBenchmark.measure("perform.patch.java", ReviewBenchmark.createPerform(
+                sourceConstructor, statistics, sourceContent, sourceContentSetter, sourceOriginalSetter, isCandidate, perform, engine, javaFormatingTasks, javaFile, javaContent));
+        ReviewBenchmark.measure("perform.patch.java.scaled", ReviewBenchmark.createPerform(
+                sourceConstructor, statistics, sourceContent, sourceContentSetter, sourceOriginalSetter, isCandidate, perform, engine, javaFormatingTasks, javaFile, javaScaled));
+        ReviewBenchmark.measure("perform.patch.css", ReviewBenchmark.createPerform(
+                sourceConstructor, statistics, sourceContent, sourceContentSetter, sourceOriginalSetter, isCandidate, perform, cssPatchEngine, cssFormatingTasks, cssFile, cssContent));
+
+        // Content that has already been patched, as in repeated runs of
+        // codemods, which are mostly reviews without changes.
+        CharSequence javaPatched = (CharSequence)ReviewBenchmark.createPerform(
+                sourceConstructor, statistics, sourceContent, sourceContentSetter, sourceOriginalSetter, isCandidate, perform, engine, javaFormatingTasks, javaFile, javaScaled).run();
+        ReviewBenchmark.measure("perform.patch.java.settled", ReviewBenchmark.createPerform(
+                sourceConstructor, statistics, sourceContent, sourceContentSetter, sourceOriginalSetter, isCandidate, perform, engine, javaFormatingTasks, javaFile, javaPatched));
+    }
+
+    /**
+     * Creates the operation to perform tasks for a content.
+     * Each execution uses a new source with the passed content. Like the
+     * workers, only tasks that are candidates for the content are performed.
+     * @param  sourceConstructor    constructor of the source
+     * @param  statistics           statistics of the review
+     * @param  sourceContent        getter of the content of the source
+     * @param  sourceContentSetter  setter of the content of the source
+     * @param  sourceOriginalSetter setter of the original content of the source
+     * @param  isCandidate          method to check a task for the source
+     * @param  perform              method to perform a task
+     * @param  engine               engine with the tasks
+     * @param  tasks                tasks
+     * @param  file                 file of the source
+     * @param  content              content of the source
+     * @return the created operation
+     */
+    private static Operation createPerform(MethodHandle sourceConstructor, Object statistics, MethodHandle sourceContent,
+            MethodHandle sourceContentSetter, MethodHandle sourceOriginalSetter, MethodHandle isCandidate, MethodHandle perform,
+            Object engine, Object[] tasks, File file, CharSequence content) {
+        return () -> {
+            Object source = (Object)sourceConstructor.invokeExact(file, engine, statistics);
+            sourceContentSetter.invokeExact(source, content);
+            sourceOriginalSetter.invokeExact(source, content);
+            for (Object task : tasks)
+                if ((boolean)isCandidate.invokeExact(source, task))
+                    perform.invokeExact(task, source);
+            return (CharSequence)sourceContent.invokeExact(source);
+        };
+    }
+}
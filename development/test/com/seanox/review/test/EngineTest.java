@@ -0,0 +1,103 @@
+/**
+ * LIZENZBEDINGUNGEN - Seanox Software Solutions ist ein Open-Source-Projekt,
+ * im Folgenden Seanox Software Solutions oder kurz Seanox genannt.
+ * Diese Software unterliegt der Version 2 der Apache License.
+ *
+ * Review, text based code analyzer
+ * Copyright (C) 2024 Seanox Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.seanox.review.test;
+
+import com.seanox.review.Review;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Test of the engine API from a named package, like an IDE integration or
+ * a build plugin uses it. The test is executed with the ant target test and
+ * ends with an AssertionError if an expectation is not met.
+ *
+ * @author  Seanox Software Solutions
+ * @version 1.5.1 20240602
+ */
+public class EngineTest {
+
+    /** anti-pattern file with a detection and an overflowing expression */
+    private static final String PATTERN = "+ *.txt\nTODO\nDETECT todo found\n\n"
+            + "+ *.txt\n(?:a|b)*c\nDETECT overflow\n";
+
+    public static void main(String... options)
+            throws Exception {
+
+        Path workspace = Files.createTempDirectory("review");
+        try {
+            Path pattern = workspace.resolve("pattern.txt");
+            Files.write(pattern, PATTERN.getBytes(StandardCharsets.UTF_8));
+            Path data = Files.createDirectories(workspace.resolve("data"));
+            Files.write(data.resolve("a.txt"), "TODO one\n".getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (int loop = 0; loop < 1000000; loop++)
+                builder.append("ab");
+            builder.append("c");
+            Files.write(data.resolve("b.txt"), builder.toString().getBytes(StandardCharsets.UTF_8));
+
+            Review.Engine engine = Review.Engine.compile(pattern.toFile());
+
+            // The failing file is returned as finding with the command ERROR,
+            // the findings of the other files are retained.
+            List<Review.Finding> findings = engine.review(data.toFile());
+            EngineTest.assertFinding(findings, "a.txt", "DETECT", 1, 1);
+            EngineTest.assertFinding(findings, "b.txt", "ERROR", 0, 0);
+
+            // Content of an unsaved file is reviewed without reading the file.
+            findings = engine.review("c.txt", "x TODO");
+            EngineTest.assertFinding(findings, "c.txt", "DETECT", 1, 3);
+            if (findings.size() != 1)
+                throw new AssertionError("Unexpected findings: " + findings.size());
+
+        } finally {
+            try (Stream<Path> stream = Files.walk(workspace)) {
+                stream.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+
+        System.out.println("passed");
+    }
+
+    /**
+     * Asserts that the findings contain a finding for the file with the
+     * command at the line and column.
+     * @param findings findings
+     * @param file     name of the file
+     * @param command  command
+     * @param line     line
+     * @param column   column
+     */
+    private static void assertFinding(List<Review.Finding> findings, String file, String command, int line, int column) {
+        for (Review.Finding finding : findings)
+            if (new File(finding.getPath()).getName().equals(file)
+                    && finding.getCommand().equals(command)
+                    && finding.getLine() == line
+                    && finding.getColumn() == column)
+                return;
+        throw new AssertionError(String.format("Missing %s finding for %s at %d:%d", command, file, line, column));
+    }
+}
@@ -0,0 +1,4631 @@
+/**
+ * LIZENZBEDINGUNGEN - Seanox Software Solutions ist ein Open-Source-Projekt,
+ * im Folgenden Seanox Software Solutions oder kurz Seanox genannt.
+ * Diese Software unterliegt der Version 2 der Apache License.
+ *
+ * Review, text based code analyzer
+ * Copyright (C) 2024 Seanox Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.seanox.review;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Review, a text based code analyzer.
+ *
+ * @author  Seanox Software Solutions
+ * @version 1.5.1 20240602
+ */
+public class Review {
+
+    /** executor of the reviews of the files */
+    private volatile static ExecutorService executor;
+
+    /** files in flight, found but not yet reviewed completely */
+    private volatile static Semaphore flight;
+
+    /** engine with the compiled tasks */
+    private volatile static Engine engine;
+
+    /** writer of the output of the files */
+    private volatile static Reporter reporter;
+
+    /** index of the previous reviews (optional) */
+    private volatile static Index index;
+
+    /** directory of the review as normalized absolute path */
+    private volatile static Path root;
+
+    /** memory budget of the contents in flight (optional) */
+    private volatile static Quota quota;
+
+    /** files written in the watch mode with size and time of modification */
+    private static final Map<Path, Map.Entry<Long, FileTime>> written = new ConcurrentHashMap<>();
+
+    /** statistics of the review */
+    private volatile static Statistics statistics = new Statistics();
+    
+    /** start time */
+    private volatile static long timing;
+
+    /** maximum number of files in flight */
+    private static final int CAPACITY = 1024;
+
+    /** number of bytes at the beginning of a file that are checked */
+    private static final int SNIFFING = 8192;
+
+    /** time in milliseconds until changes are settled in the watch mode */
+    private static final long SETTLING = 100;
+
+    /** Internal class for managing application arguments */
+    private static class Options {
+        
+        /** (De)Activation of the replacement */
+        private static boolean replace;
+
+        /** (De)Activation of the help output */
+        private static boolean help;
+
+        /** number of workers/threads */
+        private static int threads = Runtime.getRuntime().availableProcessors();
+
+        /** (De)Activation of virtual threads for the workers */
+        private static boolean virtual;
+
+        /** (De)Activation of the profiling of the tasks */
+        private static boolean profile;
+
+        /** size in MB from which files are mapped into memory (0 disabled) */
+        private static int mapping;
+
+        /** file of the index of the previous reviews (optional) */
+        private static File index;
+
+        /** file with the list of files to review, - for stdin (optional) */
+        private static File list;
+
+        /** (De)Activation of the watch mode */
+        private static boolean watch;
+
+        /** time budget per match in milliseconds (0 unlimited) */
+        private static long budget;
+
+        /** time budget per file in milliseconds (0 unlimited) */
+        private static long limit;
+
+        /** maximum size of the files in MB (0 unlimited) */
+        private static int size;
+
+        /** (De)Activation of the output sorted by path */
+        private static boolean sorted;
+
+        /** format of the findings (json, sarif, null for text) */
+        private static String format;
+
+        /** size of the chunks of large files in KB (0 off) */
+        private static int chunk;
+
+        /** maximum span of the matches in chunks in KB */
+        private static int span = 64;
+
+        /** number of the shard of the files (1 to shards) */
+        private static int shard = 1;
+
+        /** number of the shards of the files */
+        private static int shards = 1;
+
+        /** file of the mergeable result of the review (optional) */
+        private static File result;
+
+        /** memory budget of the contents in flight in MB (0 unlimited) */
+        private static int quota;
+    }
+    
+    /**
+     * Formats a message for the output.
+     * Throwables are output with the stack trace, whitespace at the end is
+     * removed.
+     * @param  message message
+     * @return the formatted message
+     */
+    private static String format(Object message) {
+        String text;
+        if (message instanceof Throwable) {
+            StringWriter writer = new StringWriter();
+            ((Throwable)message).printStackTrace(new PrintWriter(writer));
+            text = writer.toString();
+        } else text = String.valueOf(message);
+        int length = text.length();
+        while (length > 0
+                && " \t\n\u000B\f\r".indexOf(text.charAt(length -1)) >= 0)
+            length--;
+        return text.substring(0, length);
+    }
+
+    /**
+     * Writes a message to the system output stream.
+     * The output of the files during the review is written by the Reporter.
+     * @param message message
+     */
+    private static void print(Object message) {
+        System.out.println(Review.format(message));
+    }
+
+    /**
+     * Writes a formatted message to the system output stream.
+     * @param message message
+     * @param values  value(s) 
+     */
+    private static void print(String message, Object... values) {
+        Review.print(String.format(message, values));
+    }
+
+    /**
+     * Writes the contents in a file.
+     * The contents are first written to a temporary file in the same directory,
+     * which then replaces the file with an atomic rename. So the file is either
+     * unchanged or completely written, but never in a partial state. A file
+     * that does not exist yet is created the same way.
+     * @param  file  file
+     * @param  bytes content
+     * @throws IOException
+     *     In the case of the failed file access.
+     */
+    private static void writeFile(File file, byte[] bytes)
+            throws IOException {
+        Path path = file.exists() ? file.toPath().toRealPath() : file.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(path.getParent(), "." + path.getFileName() + ".", ".tmp");
+        try {
+            Files.write(temp, bytes);
+            PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+            if (view != null
+                    && Files.exists(path))
+                Files.setPosixFilePermissions(temp, view.readAttributes().permissions());
+            try {Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Passes a file to the executor for the review. The number of files in
+     * flight is limited, so the discovery pauses when the workers cannot
+     * keep up with it.
+     * @param  file file
+     * @throws InterruptedException
+     *     In case the waiting was interrupted.
+     */
+    private static void dispatch(File file)
+            throws InterruptedException {
+        Review.flight.acquire();
+        Review.executor.execute(new Worker(file));
+    }
+
+    /**
+     * Checks whether a file belongs to the shard of the review (option -n).
+     * The files are assigned by the hash of the path relative to the
+     * directory of the review, so that every node assigns a file to the same
+     * shard, regardless of the order in which the files are found.
+     * @param  file file
+     * @return true if the file belongs to the shard
+     */
+    private static boolean isAssigned(File file) {
+        if (Options.shards <= 1)
+            return true;
+        Path path = file.toPath().toAbsolutePath().normalize();
+        if (path.startsWith(Review.root))
+            path = Review.root.relativize(path);
+        byte[] hash = Index.createDigest().digest(path.toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+        long value = ByteBuffer.wrap(hash).getLong();
+        return Long.remainderUnsigned(value, Options.shards) == Options.shard -1;
+    }
+
+    /**
+     * Passes all files of a directory to the review.
+     * @param  path directory
+     * @return number of found files
+     * @throws IOException
+     *     In the case of the failed file access.
+     * @throws InterruptedException
+     *     In case the waiting was interrupted.
+     */
+    private static long walk(File path)
+            throws IOException, InterruptedException {
+        long count = 0;
+        if (path.exists())
+            try (Stream<Path> stream = Files.walk(path.toPath())) {
+                Iterator<Path> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    File file = iterator.next().toFile();
+                    if (!file.isFile()
+                            || !file.exists()
+                            || !Review.isAssigned(file))
+                        continue;
+                    Review.dispatch(file);
+                    count++;
+                }
+            }
+        return count;
+    }
+
+    /**
+     * Passes the files of a list to the review (option -l).
+     * The list contains one path per line, e.g. from git diff --name-only.
+     * Relative paths refer to the directory of option -d. Directories are
+     * searched completely, paths that do not exist (e.g. deleted files) and
+     * repeated paths are ignored. The files are reviewed while the list is
+     * still being read.
+     * @param  path   directory for relative paths
+     * @param  reader list of paths
+     * @return number of found files
+     * @throws IOException
+     *     In the case of the failed file access.
+     * @throws InterruptedException
+     *     In case the waiting was interrupted.
+     */
+    private static long list(File path, BufferedReader reader)
+            throws IOException, InterruptedException {
+        long count = 0;
+        Set<Path> files = new HashSet<>();
+        for (String line; (line = reader.readLine()) != null;) {
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+            File file = new File(line);
+            if (!file.isAbsolute())
+                file = new File(path, line);
+            if (file.isDirectory())
+                count += Review.walk(file);
+            else if (file.isFile()
+                    && Review.isAssigned(file)
+                    && files.add(file.toPath().toAbsolutePath().normalize())) {
+                Review.dispatch(file);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads all tasks from a file.
+     * @param  file anti-pattern file
+     * @return array of created and prepared task
+     * @throws IOException
+     *     In the case of the failed file access.
+     * @throws ReviewParserException
+     *     In case of invalid syntax or structure.
+     */    
+    private static Task[] readTasks(File file)
+            throws IOException, ReviewParserException {
+        
+        String[] lines = new String(Files.readAllBytes(file.toPath())).split("(\r\n)|(\n\r)|\r|\n");
+        IntStream.range(0, lines.length).forEach(index -> {
+            if (lines[index].matches("^\\s*[^#].*"))
+                lines[index] = (index +1) + ":" + lines[index].trim();
+        });        
+        
+        String content = String.join("\n", lines);
+        content = content.replaceAll("[\\x00-\\x09\\x0B-\\x20]+", " ");
+        content = content.replaceAll("(?m)^ *#[^\n]*?(\n|$)", "");
+        content = content.trim();
+        
+        List<Task> tasks = new ArrayList<>();
+        for (String section : content.split("(\\s*\\R\\s*){2,}")) {
+            String line = section.replaceAll("(?s)^(\\d+):.*", "$1");
+            section = section.replaceAll("(?m)^\\s*\\d+:\\s*", "");
+            Task task;
+            try {task = Task.parse(String.format("#%s%n%s", line, section));
+            } catch (ReviewParserException exception) {
+                throw new ReviewParserException(String.format("%s in the section from line %s", exception.getMessage(), line));
+            }
+            task.index = tasks.size();
+            tasks.add(task);
+        }
+        
+        return tasks.toArray(new Task[0]);            
+    }
+    
+    /**
+     * Returns the bytes of a resource file.
+     * @param  resource
+     * @return bytes of a resource file
+     * @throws IOException
+     *     In the case when the access to the resources fails.
+     */
+    private static byte[] getResourceBytes(String resource)
+            throws IOException {
+        ClassLoader classLoader = Review.class.getClassLoader();
+        try (DataInputStream inputStream = new DataInputStream(classLoader.getResourceAsStream("resources/" + resource))) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] bytes = new byte[65535];
+            for (int length; (length = inputStream.read(bytes)) >= 0;)
+                buffer.write(bytes, 0, length);
+            return buffer.toByteArray();
+        }
+    }
+    
+    /**
+     * Returns the text of a resource file.
+     * @param  resource
+     * @return text of a resource file
+     * @throws IOException
+     *     In the case when the access to the resources fails.
+     */
+    private static String getResourceText(String resource)
+            throws IOException {
+        String text = new String(Review.getResourceBytes(resource));
+        text = text.replaceAll("\\x20{4}", "\t");
+        text = text.replaceAll("(?m)\\s+$", System.lineSeparator());
+        text = text.replaceAll("\\s+$", "");
+        return text;
+    }
+    
+    /**
+     * Returns the profile of the tasks as text.
+     * The tasks are ranked by the time spent in file filtering, matching of
+     * the primary pattern and evaluation of the sub-patterns, the slowest
+     * task first.
+     * @return the profile of the tasks as text
+     */
+    private static String getProfileText() {
+
+        List<Task> tasks = new ArrayList<>(Review.engine.tasks);
+        tasks.sort(Comparator.comparingLong((Task task) -> task.statistics.getTiming()).reversed());
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("\t%-10s %10s %10s %10s %10s %10s %10s",
+                "section", "total ms", "filter ms", "match ms", "sub ms", "files", "matches"));
+        for (Task task : tasks)
+            builder.append(System.lineSeparator()).append(String.format("\t%-10s %10.2f %10.2f %10.2f %10.2f %10d %10d",
+                    "#" + task.number,
+                    task.statistics.getTiming() /1000000d,
+                    task.statistics.filtering.sum() /1000000d,
+                    task.statistics.matching.sum() /1000000d,
+                    task.statistics.evaluating.sum() /1000000d,
+                    task.statistics.files.sum(),
+                    task.statistics.founds.sum()));
+        return builder.toString();
+    }
+    
+    /**
+     * Main entry in the application.
+     * @param  options start parameter
+     * @throws Exception
+     *     In the case of occurring errors.
+     */
+    public static void main(String[] options)
+            throws Exception {
+
+        // for testing:
+        // options = new String[] {"-x", "-d", "./test", "./test/anti-pattern.txt"};
+        // options = new String[] {"-d", "./test", "./test/anti-pattern.txt"};
+        // options = new String[] {"-h"};
+        
+        File path = new File(".");
+        String pattern = null;
+        List<File> results = new ArrayList<>();
+        for (int loop = 0; options != null && loop < options.length; loop++) {
+            String option = options[loop].trim();
+            if (loop < options.length -1
+                    || option.startsWith("-")) {
+                if (option.equalsIgnoreCase("-x"))
+                    Options.replace = true;
+                else if (option.equalsIgnoreCase("-d")
+                        && !options[++loop].toLowerCase().startsWith("-"))
+                    path = new File(options[loop].trim());
+                else if (option.equalsIgnoreCase("-h"))
+                    Options.help = true;                
+                else if (option.equalsIgnoreCase("-t")
+                        && options[++loop].trim().matches("^0*[1-9]\\d{0,5}$"))
+                    Options.threads = Integer.parseInt(options[loop].trim());
+                else if (option.equalsIgnoreCase("-v"))
+                    Options.virtual = true;
+                else if (option.equalsIgnoreCase("-p"))
+                    Options.profile = true;
+                else if (option.equalsIgnoreCase("-i")
+                        && !options[++loop].toLowerCase().startsWith("-"))
+                    Options.index = new File(options[loop].trim());
+                else if (option.equalsIgnoreCase("-l")
+                        && options[++loop].trim().matches("^(-|[^-].*)$"))
+                    Options.list = new File(options[loop].trim());
+                else if (option.equalsIgnoreCase("-w")
+                        || option.equalsIgnoreCase("--watch"))
+                    Options.watch = true;
+                else if (option.equalsIgnoreCase("-b")
+                        && options[++loop].trim().matches("^\\d{1,9}(/\\d{1,9})?$")) {
+                    String[] budgets = options[loop].trim().split("/");
+                    Options.budget = Long.parseLong(budgets[0]);
+                    Options.limit = budgets.length > 1 ? Long.parseLong(budgets[1]) : 0;
+                } else if (option.equalsIgnoreCase("-c")
+                        && options[++loop].trim().matches("^0*[1-9]\\d{0,6}(/\\d{1,6})?$")) {
+                    String[] sizes = options[loop].trim().split("/");
+                    Options.chunk = Integer.parseInt(sizes[0]);
+                    if (sizes.length > 1)
+                        Options.span = Integer.parseInt(sizes[1]);
+                } else if ((option.equalsIgnoreCase("-n")
+                                || option.equalsIgnoreCase("--shard"))
+                        && options[++loop].trim().matches("^0*[1-9]\\d{0,5}/0*[1-9]\\d{0,5}$")) {
+                    String[] shards = options[loop].trim().split("/");
+                    if (Integer.parseInt(shards[0]) <= Integer.parseInt(shards[1])) {
+                        Options.shard = Integer.parseInt(shards[0]);
+                        Options.shards = Integer.parseInt(shards[1]);
+                    }
+                } else if (option.equalsIgnoreCase("-r")
+                        && !options[++loop].toLowerCase().startsWith("-"))
+                    Options.result = new File(options[loop].trim());
+                else if (option.equalsIgnoreCase("--merge"))
+                    while (loop < options.length -1)
+                        results.add(new File(options[++loop].trim()));
+                else if (option.equalsIgnoreCase("-s")
+                        && options[++loop].trim().matches("^\\d{1,6}$"))
+                    Options.size = Integer.parseInt(options[loop].trim());
+                else if (option.equalsIgnoreCase("-o"))
+                    Options.sorted = true;
+                else if (option.equalsIgnoreCase("-f")
+                        && options[++loop].trim().matches("^(?i)(json|sarif)$"))
+                    Options.format = options[loop].trim().toLowerCase();
+                else if (option.equalsIgnoreCase("-m")
+                        && options[++loop].trim().matches("^\\d{1,6}$"))
+                    Options.mapping = Integer.parseInt(options[loop].trim());
+                else if (option.equalsIgnoreCase("-q")
+                        && options[++loop].trim().matches("^\\d{1,7}$"))
+                    Options.quota = Integer.parseInt(options[loop].trim());
+            } else pattern = option;
+        }
+
+        // With a machine-readable format, only the findings are written to
+        // the system output stream, all other messages to the error stream.
+        if (Options.format != null) {
+            Reporter.output = System.out;
+            System.setOut(System.err);
+        }
+
+        System.out.println("Review [Version 0.0.0 00000000]");
+        System.out.println("Copyright (C) 0000 Seanox Software Solutions");
+        System.out.println("Expression Based Static Code Analysis");
+        
+        if (pattern == null
+                && results.isEmpty()) {
+            System.out.println();
+            System.out.println(Review.getResourceText("usage.txt"));
+            if (Options.help)
+                System.out.println(Review.getResourceText("help.txt"));
+            return;
+        }
+
+        Review.timing = System.currentTimeMillis();
+        Review.root = path.toPath().toAbsolutePath().normalize();
+        if (Options.quota > 0)
+            Review.quota = new Quota(Options.quota *1024L *1024L);
+        
+        try {
+
+            if (!results.isEmpty()) {
+                Review.merge(results);
+                return;
+            }
+
+            Review.load(new File(pattern));
+
+            Review.establish();
+            try {
+                final File directory = path;
+                if (Options.list == null)
+                    Review.review(() -> Review.walk(directory), Options.result);
+                else if (Options.list.getPath().equals("-"))
+                    Review.review(() -> Review.list(directory, new BufferedReader(new InputStreamReader(System.in))), Options.result);
+                else Review.review(() -> {
+                    try (BufferedReader reader = Files.newBufferedReader(Options.list.toPath(), Charset.defaultCharset())) {
+                        return Review.list(directory, reader);
+                    }
+                }, Options.result);
+
+                if (Options.watch)
+                    Review.watch(path, new File(pattern));
+
+            } finally {
+                Review.terminate();
+            }
+            
+        } catch (Exception exception) {
+            Review.print(System.lineSeparator());
+            if (exception instanceof ReviewException) {
+                Review.print(exception.getMessage());
+                return;
+            }
+            Review.print("An unexpected error occurred:");
+            Review.print(exception);
+        }
+    }
+
+    /**
+     * Reads the tasks from the anti-pattern file and prepares them.
+     * If the file contains errors, the previous tasks remain unchanged.
+     * @param  pattern anti-pattern file
+     * @throws IOException
+     *     In the case of the failed file access.
+     * @throws ReviewParserException
+     *     In case of invalid syntax or structure.
+     */
+    private static void load(File pattern)
+            throws IOException, ReviewParserException {
+        Engine engine = new Engine(Arrays.asList(Review.readTasks(pattern)), Settings.capture());
+        System.out.println();
+        System.out.printf("\tfound %s tasks%n", engine.tasks.size());
+        Review.engine = engine;
+        if (Options.index != null) {
+            if (Review.index == null) {
+                Review.index = new Index(Options.index);
+                System.out.printf("\tfound %s indexed files%n", Review.index.records.size());
+            }
+            Review.index.identify(engine.tasks);
+        }
+    }
+
+    /** Discovery of the files for a review. */
+    private interface Discovery {
+
+        /**
+         * Passes the files to be reviewed to the review.
+         * @return number of found files
+         * @throws IOException
+         *     In the case of the failed file access.
+         * @throws InterruptedException
+         *     In case the waiting was interrupted.
+         */
+        long discover()
+                throws IOException, InterruptedException;
+    }
+
+    /**
+     * Establishes the workers and the reporter of the session. They are used
+     * by the review and, with option -w, by all reviews of the watch mode.
+     */
+    private static void establish() {
+
+        // The files are found while the workers are already reviewing.
+        // Each file is a task of the executor, with option -v a virtual
+        // thread of its own. The files in flight are limited, so the
+        // discovery pauses when the workers cannot keep up with it.
+        Review.flight = new Semaphore(Review.CAPACITY);
+        if (Options.virtual)
+            System.out.printf("\testablishing virtual workers%n");
+        else System.out.printf("\testablishing %s workers%n", Options.threads);
+        Review.executor = Options.virtual
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(Options.threads);
+        Review.reporter = new Reporter(Options.sorted);
+    }
+
+    /**
+     * Ends the workers and the reporter of the session, after the files
+     * already found have been reviewed.
+     * @throws InterruptedException
+     *     In case the waiting for the reporter was interrupted.
+     */
+    private static void terminate()
+            throws InterruptedException {
+        Review.executor.shutdown();
+        try {Review.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException exception) {
+            Review.executor.shutdownNow();
+        }
+        Review.reporter.close();
+    }
+
+    /**
+     * Reviews the files of a discovery and outputs the summary.
+     * @param  discovery discovery of the files
+     * @param  output    file of the mergeable result, otherwise null
+     * @throws Exception
+     *     In the case of occurring errors.
+     */
+    private static void review(Discovery discovery, File output)
+            throws Exception {
+
+        System.out.printf("\tstarting review%n");
+        Map<String, String> rules = new LinkedHashMap<>();
+        for (Task task : Review.engine.tasks)
+            rules.put(String.valueOf(task.number), task.conditions[0].rule);
+        Result result = null;
+        if (output != null)
+            try {result = new Result(output, Result.identify(Review.engine.tasks), rules);
+            } catch (IOException exception) {
+                Review.print("%nERROR: Occurred while writing %s%n", output);
+                Review.print(exception);
+            }
+        Review.reporter.open(rules, result);
+
+        // Even if the discovery fails, the files already found are reviewed
+        // and the output is completed before the error is passed on. All
+        // files have been reviewed when all places in flight are free again.
+        long count = 0;
+        try {count = discovery.discover();
+        } finally {
+            Review.flight.acquire(Review.CAPACITY);
+            Review.flight.release(Review.CAPACITY);
+            Review.reporter.complete();
+        }
+
+        long duration = System.currentTimeMillis() -Review.timing;
+        Review.summarize(count, duration /1000f);
+
+        if (Options.profile) {
+            System.out.println();
+            System.out.println(Review.getProfileText());
+        }
+
+        if (Review.index != null)
+            try {Review.index.save();
+            } catch (IOException exception) {
+                Review.print("%nERROR: Occurred while writing %s%n", Options.index);
+                Review.print(exception);
+            }
+
+        if (result != null)
+            try {result.close(count, Review.statistics, duration);
+            } catch (IOException exception) {
+                Review.print("%nERROR: Occurred while writing %s%n", output);
+                Review.print(exception);
+            }
+    }
+
+    /**
+     * Outputs the summary of a review with the counters of the statistics.
+     * @param  count number of found files
+     * @param  time  duration in seconds
+     * @throws IOException
+     *     In the case of the failed access to the resources.
+     */
+    private static void summarize(long count, float time)
+            throws IOException {
+
+        System.out.println();
+        System.out.printf("\tfound %d files%n", count);
+
+        long founds = Review.statistics.founds.sum();
+        long corrections = Review.statistics.corrections.sum();
+        long errors = Review.statistics.errors.sum();
+        long reviews = Review.statistics.reviews.sum();
+        long files = Review.statistics.files.sum();
+        long skipped = Review.statistics.skipped.sum();
+        float volume = Review.statistics.volume.sum() /1024f /1024f;
+        
+        String summary = Review.getResourceText("summary.txt");
+        summary = String.format(summary,
+                founds,
+                corrections,
+                errors,
+                time,
+                reviews,
+                (long)(reviews /time),
+                files,
+                (long)(files /time),
+                skipped,
+                volume,
+                volume /time);
+        System.out.println();
+        System.out.println(summary);
+    }
+
+    /**
+     * Registers a directory and all its subdirectories for the watch mode.
+     * @param  service     watch service
+     * @param  directories registered directories
+     * @param  path        directory
+     * @throws IOException
+     *     In the case of the failed file access.
+     */
+    private static void register(WatchService service, Map<WatchKey, Path> directories, Path path)
+            throws IOException {
+        try (Stream<Path> stream = Files.walk(path)) {
+            Iterator<Path> iterator = stream.filter(Files::isDirectory).iterator();
+            while (iterator.hasNext()) {
+                Path directory = iterator.next();
+                directories.put(directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY), directory);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the last change of a file was made by the review itself
+     * in the watch mode (option -x). This is the case as long as size and
+     * time of modification are still the same as written by the review. The
+     * mark is used only for the next event of the file.
+     * @param  file file
+     * @return true if the file was last changed by the review
+     */
+    private static boolean isWritten(Path file) {
+        Map.Entry<Long, FileTime> mark = Review.written.remove(file);
+        if (mark == null)
+            return false;
+        try {return Files.size(file) == mark.getKey()
+                    && Files.getLastModifiedTime(file).equals(mark.getValue());
+        } catch (IOException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Watches the directory and the anti-pattern file after the review
+     * (option -w). The tasks remain compiled, created and changed files are
+     * reviewed as soon as the changes have settled. A change of the
+     * anti-pattern file reloads the tasks and reviews all files again. The
+     * watch mode ends with the termination of the program.
+     * @param  path    directory
+     * @param  pattern anti-pattern file
+     * @throws Exception
+     *     In the case of occurring errors.
+     */
+    private static void watch(File path, File pattern)
+            throws Exception {
+
+        Path root = path.toPath().toAbsolutePath().normalize();
+        Path rules = pattern.toPath().toAbsolutePath().normalize();
+        Path index = Options.index != null ? Options.index.toPath().toAbsolutePath().normalize() : null;
+
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+
+            Map<WatchKey, Path> directories = new HashMap<>();
+            Review.register(service, directories, root);
+            if (!directories.containsValue(rules.getParent()))
+                directories.put(rules.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY), rules.getParent());
+
+            // The initial review wrote its changes before the registration, so
+            // they cause no events and their marks are dropped.
+            Review.written.clear();
+
+            System.out.println();
+            System.out.printf("\twatching %s%n", path);
+
+            while (true) {
+
+                // Editors and builds usually change several files in a row,
+                // so the events are collected until the changes have settled.
+                Set<Path> files = new LinkedHashSet<>();
+                boolean reload = false;
+                boolean overflow = false;
+                for (WatchKey key = service.take(); key != null; key = service.poll(Review.SETTLING, TimeUnit.MILLISECONDS)) {
+                    Path directory = directories.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                            continue;
+                        }
+                        Path file = directory.resolve((Path)event.context());
+                        if (file.equals(rules))
+                            reload = true;
+                        else if (file.equals(index)
+                                || !file.startsWith(root))
+                            continue;
+                        else if (Files.isDirectory(file)) {
+                            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                                Review.register(service, directories, file);
+                                try (Stream<Path> stream = Files.walk(file)) {
+                                    stream.filter(Files::isRegularFile).forEach(files::add);
+                                }
+                            }
+                        } else files.add(file);
+                    }
+                    if (!key.reset())
+                        directories.remove(key);
+                }
+
+                // With option -x, the review replaces the changed files and
+                // so causes events itself, which must not start a review.
+                files.removeIf(Review::isWritten);
+
+                if (!reload
+                        && !overflow
+                        && files.stream().noneMatch(Files::isRegularFile))
+                    continue;
+
+                // Each review of the watch mode has its own counters, the
+                // counters of the tasks are reset with those of the review.
+                Review.timing = System.currentTimeMillis();
+                Review.statistics.reset();
+                for (Task task : Review.engine.tasks)
+                    task.statistics.reset();
+
+                if (reload)
+                    try {Review.load(pattern);
+                    } catch (ReviewParserException exception) {
+                        Review.print(System.lineSeparator());
+                        Review.print(exception.getMessage());
+                        continue;
+                    }
+
+                // The result of option -r contains the initial review only,
+                // the reviews of the watch mode are not mergeable.
+                if (reload
+                        || overflow)
+                    Review.review(() -> Review.walk(path), null);
+                else Review.review(() -> {
+                    long count = 0;
+                    for (Path file : files) {
+                        if (!Files.isRegularFile(file)
+                                || !Review.isAssigned(file.toFile()))
+                            continue;
+                        Review.dispatch(new File(path, root.relativize(file).toString()));
+                        count++;
+                    }
+                    return count;
+                }, null);
+
+                System.out.println();
+                System.out.printf("\twatching %s%n", path);
+            }
+        }
+    }
+
+    /**
+     * Merges the results of the shards of a review (option --merge) into one
+     * output and summary, as if the files had been reviewed by one node.
+     * The output of the files is written in the order of the results or with
+     * option -o sorted by path. The counters are summed up, the duration is
+     * that of the slowest shard. The results must come from the same review,
+     * i.e. the same tasks and options, and contain each shard exactly once.
+     * With option -r, the merged result is written again as a result.
+     * @param  files result files of the shards
+     * @throws Exception
+     *     In the case of occurring errors.
+     */
+    private static void merge(List<File> files)
+            throws Exception {
+
+        // The rules are needed at the beginning of the output, so first the
+        // beginnings of all results are read and checked for completeness.
+        Map<String, String> rules = new LinkedHashMap<>();
+        String identity = null;
+        BitSet shards = new BitSet();
+        int number = 0;
+        for (File file : files) {
+            String[] review = new String[1];
+            int[] shard = new int[2];
+            try {Result.open(file, review, rules, shard).close();
+            } catch (IOException exception) {
+                throw new ReviewException(String.format("The result %s is invalid or not readable (%s)", file, exception.getMessage()));
+            }
+            if (identity == null)
+                identity = review[0];
+            else if (!identity.equals(review[0]))
+                throw new ReviewException(String.format("The result %s comes from a review with other tasks or options", file));
+            if (number == 0)
+                number = shard[1];
+            else if (number != shard[1])
+                throw new ReviewException("The results have different numbers of shards");
+            if (shard[0] < 1
+                    || shard[0] > shard[1]
+                    || shards.get(shard[0]))
+                throw new ReviewException(String.format("The shard %d/%d is contained several times", shard[0], shard[1]));
+            shards.set(shard[0]);
+        }
+        if (shards.cardinality() < number)
+            throw new ReviewException(String.format("The results of %d of %d shards are missing",
+                    number -shards.cardinality(), number));
+
+        System.out.println();
+        System.out.printf("\tmerging %d results%n", files.size());
+
+        Result result = null;
+        if (Options.result != null)
+            try {result = new Result(Options.result, identity, rules);
+            } catch (IOException exception) {
+                Review.print("%nERROR: Occurred while writing %s%n", Options.result);
+                Review.print(exception);
+            }
+        Review.reporter = new Reporter(Options.sorted);
+        Review.reporter.open(rules, result);
+        Review.statistics = new Statistics();
+
+        long count = 0;
+        long duration = 0;
+        try {
+            for (File file : files)
+                try (DataInputStream input = Result.open(file, new String[1], new HashMap<>(), new int[2])) {
+                    while (input.readBoolean())
+                        Review.reporter.report(Index.readText(input), Index.readText(input));
+                    count += input.readLong();
+                    Review.statistics.founds.add(input.readLong());
+                    Review.statistics.corrections.add(input.readLong());
+                    Review.statistics.errors.add(input.readLong());
+                    Review.statistics.reviews.add(input.readLong());
+                    Review.statistics.files.add(input.readLong());
+                    Review.statistics.skipped.add(input.readLong());
+                    Review.statistics.volume.add(input.readLong());
+                    duration = Math.max(duration, input.readLong());
+                } catch (IOException exception) {
+                    throw new ReviewException(String.format("The result %s is invalid or not readable (%s)", file, exception.getMessage()));
+                }
+        } finally {
+            Review.reporter.complete();
+            Review.reporter.close();
+        }
+
+        Review.summarize(count, duration /1000f);
+
+        if (result != null)
+            try {result.close(count, Review.statistics, duration);
+            } catch (IOException exception) {
+                Review.print("%nERROR: Occurred while writing %s%n", Options.result);
+                Review.print(exception);
+            }
+    }
+
+    /** General exception in the context of Review. */
+    public static class ReviewException extends Exception {
+        
+        private static final long serialVersionUID = 8677747635250456149L;
+
+        private ReviewException(String message) {
+            super(message);
+        }
+
+        private ReviewException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+    
+    /** General parser exception in the context of Review. */
+    public static class ReviewParserException extends ReviewException {
+        
+        private static final long serialVersionUID = 2873474249219182099L;
+
+        private ReviewParserException(String message) {
+            super(message);
+        }
+    }
+    
+    /**
+     * Exception when the time budget of a match or a file has been exceeded.
+     * The exception is unchecked, because it occurs inside the search of the
+     * patterns, where Budget is accessed as a CharSequence.
+     */
+    private static class ReviewBudgetException extends RuntimeException {
+
+        private static final long serialVersionUID = 5049181395126471839L;
+
+        private ReviewBudgetException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Engine of the review, the compiled tasks of an anti-pattern file for
+     * the use of the review in other applications, e.g. a build daemon.
+     * The anti-pattern file is parsed and the patterns are compiled once. The
+     * engine is immutable and reviews files, directories and contents any
+     * number of times, also concurrently from several threads, and returns
+     * the findings as objects instead of writing them to the output. The
+     * engine never changes files, PATCH and REMOVE are reported as findings
+     * as without option -x. The options of the command line do not apply,
+     * each review has its own counters. Errors of a file are returned as
+     * findings with the command ERROR and the review continues, so that the
+     * findings of the other files are not lost. The workers of the command
+     * line perform the tasks with an engine that has captured the options.
+     */
+    public static final class Engine {
+
+        /** tasks */
+        private final List<Task> tasks;
+
+        /** settings of the review */
+        private final Settings settings;
+
+        /** selection of the tasks per file */
+        private final Selector selector;
+
+        /** literal prefilter of the tasks */
+        private final Prefilter prefilter;
+
+        /**
+         * Constructor, creates a new Engine object.
+         * @param tasks    tasks
+         * @param settings settings of the review
+         */
+        private Engine(List<Task> tasks, Settings settings) {
+            this.tasks = Collections.unmodifiableList(new ArrayList<>(tasks));
+            this.settings = settings;
+            this.selector = new Selector(this.tasks);
+            this.prefilter = new Prefilter(this.tasks);
+        }
+
+        /**
+         * Compiles an anti-pattern file into an engine.
+         * @param  pattern anti-pattern file
+         * @return the engine with the compiled tasks
+         * @throws IOException
+         *     In the case of the failed file access.
+         * @throws ReviewParserException
+         *     In case of invalid syntax or structure.
+         */
+        public static Engine compile(File pattern)
+                throws IOException, ReviewParserException {
+            return new Engine(Arrays.asList(Review.readTasks(pattern)), new Settings());
+        }
+
+        /**
+         * Reviews a file or all files of a directory. The files of a
+         * directory are reviewed in the order of their paths, binary files
+         * are skipped. If the thread is interrupted, the review ends with the
+         * findings so far.
+         * @param  path file or directory
+         * @return the findings in the order of the files and sections
+         * @throws IOException
+         *     In the case of the failed access to the directory.
+         */
+        public List<Finding> review(File path)
+                throws IOException {
+            List<File> files = new ArrayList<>();
+            if (path.isDirectory())
+                try (Stream<Path> stream = Files.walk(path.toPath())) {
+                    stream.filter(Files::isRegularFile).map(Path::toFile).sorted().forEach(files::add);
+                }
+            else files.add(path);
+            Statistics statistics = new Statistics();
+            List<Finding> findings = new ArrayList<>();
+            for (File file : files) {
+                if (Thread.currentThread().isInterrupted())
+                    break;
+                Source source = new Source(file, this, statistics);
+                if (source.isReviewable())
+                    this.review(source, findings);
+            }
+            return findings;
+        }
+
+        /**
+         * Reviews a content, e.g. of an unsaved file in an editor.
+         * The path is used for the file filters and the findings, the file
+         * itself is not read.
+         * @param  path    path of the content
+         * @param  content content
+         * @return the findings in the order of the sections
+         */
+        public List<Finding> review(String path, CharSequence content) {
+            Source source = new Source(new File(path), this, new Statistics());
+            source.content = content;
+            source.original = content;
+            List<Finding> findings = new ArrayList<>();
+            this.review(source, findings);
+            return findings;
+        }
+
+        /**
+         * Reviews a source and adds the findings. Errors are added as
+         * findings with the command ERROR.
+         * @param source   source
+         * @param findings findings
+         */
+        private void review(Source source, List<Finding> findings) {
+            source.findings = findings;
+            try {
+                BitSet selection = this.selector.select(source);
+                if (selection.isEmpty())
+                    return;
+                if (!this.perform(source, selection, null)
+                        && !source.failed)
+                    source.fail(0, String.format("Review of %s was not completed", source.file));
+            } catch (Throwable throwable) {
+                source.fail(0, throwable.toString());
+            } finally {
+                source.release();
+            }
+        }
+
+        /**
+         * Performs the selected tasks for a source. With an index record, the
+         * outcomes of the previous review are taken over as long as the
+         * content has not been changed by previous tasks.
+         * @param  source    source
+         * @param  selection indices of the selected tasks
+         * @param  record    record of the file in the index, otherwise null
+         * @return true if all selected tasks have been performed
+         */
+        private boolean perform(Source source, BitSet selection, Index.Record record) {
+            for (int index = selection.nextSetBit(0); index >= 0; index = selection.nextSetBit(index +1)) {
+                if (Thread.currentThread().isInterrupted())
+                    return false;
+                if (System.nanoTime() > source.deadline) {
+                    if (!source.failed) {
+                        source.print("%nERROR: Time budget exceeded for %s%n", source.file);
+                        source.statistics.errors.increment();
+                        source.fail(0, String.format("Time budget exceeded for %s", source.file));
+                    }
+                    return false;
+                }
+                Task task = this.tasks.get(index);
+                source.statistics.files.increment();
+                task.statistics.files.increment();
+
+                // The outcome of the previous review is only valid as long
+                // as the content has not been changed by previous tasks.
+                Outcome outcome = record != null
+                        && source.content == source.original ? record.recall(task) : null;
+                if (outcome != null)
+                    task.replay(source, outcome);
+                else if (source.isCandidate(task))
+                    outcome = task.perform(source);
+                else outcome = new Outcome("", 0, 0, 0);
+                if (record != null)
+                    record.remember(task, outcome);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Finding of a review, a match of the primary pattern of a section that
+     * fulfills all sub-patterns. The offsets refer to the content at the time
+     * of the match, lines and columns start with 1. Errors of the review of a
+     * file are findings with the command ERROR, the message describes the
+     * error, the section is 0 if the error does not concern one section, line
+     * and column are 0 and the match is empty.
+     */
+    public static final class Finding {
+
+        /** path of the file */
+        private final String path;
+
+        /** line number of the section in the anti-pattern file */
+        private final long section;
+
+        /** command of the section (DETECT, PATCH, REMOVE) or ERROR */
+        private final String command;
+
+        /** indicator whether the match has been corrected */
+        private final boolean patched;
+
+        /** line of the match */
+        private final int line;
+
+        /** column of the match */
+        private final int column;
+
+        /** offset of the start of the match */
+        private final int start;
+
+        /** offset of the end of the match */
+        private final int end;
+
+        /** match */
+        private final String match;
+
+        /** message of DETECT or ERROR, otherwise empty */
+        private final String message;
+
+        /**
+         * Constructor, creates a new Finding object.
+         * @param path    path of the file
+         * @param section line number of the section
+         * @param command command of the section
+         * @param patched true if the match has been corrected
+         * @param line    line of the match
+         * @param column  column of the match
+         * @param start   offset of the start of the match
+         * @param end     offset of the end of the match
+         * @param match   match
+         * @param message message of DETECT or ERROR, otherwise empty
+         */
+        private Finding(String path, long section, String command, boolean patched,
+                int line, int column, int start, int end, String match, String message) {
+            this.path = path;
+            this.section = section;
+            this.command = command;
+            this.patched = patched;
+            this.line = line;
+            this.column = column;
+            this.start = start;
+            this.end = end;
+            this.match = match;
+            this.message = message;
+        }
+
+        /** @return the path of the file */
+        public String getPath() {
+            return this.path;
+        }
+
+        /** @return the line number of the section in the anti-pattern file */
+        public long getSection() {
+            return this.section;
+        }
+
+        /** @return the command of the section (DETECT, PATCH, REMOVE) or ERROR */
+        public String getCommand() {
+            return this.command;
+        }
+
+        /** @return true if the match has been corrected */
+        public boolean isPatched() {
+            return this.patched;
+        }
+
+        /** @return the line of the match */
+        public int getLine() {
+            return this.line;
+        }
+
+        /** @return the column of the match */
+        public int getColumn() {
+            return this.column;
+        }
+
+        /** @return the offset of the start of the match */
+        public int getStart() {
+            return this.start;
+        }
+
+        /** @return the offset of the end of the match */
+        public int getEnd() {
+            return this.end;
+        }
+
+        /** @return the match */
+        public String getMatch() {
+            return this.match;
+        }
+
+        /** @return the message of DETECT or ERROR, otherwise empty */
+        public String getMessage() {
+            return this.message;
+        }
+
+        /**
+         * Returns the finding as a record of JSON Lines (option -f json).
+         * @return the finding as one line of JSON
+         */
+        @Override
+        public String toString() {
+            return new StringBuilder()
+                    .append("{\"file\":").append(Reporter.escape(this.path))
+                    .append(",\"section\":").append(this.section)
+                    .append(",\"command\":").append(Reporter.escape(this.command))
+                    .append(",\"patched\":").append(this.patched)
+                    .append(",\"line\":").append(this.line)
+                    .append(",\"column\":").append(this.column)
+                    .append(",\"start\":").append(this.start)
+                    .append(",\"end\":").append(this.end)
+                    .append(",\"match\":").append(Reporter.escape(this.match))
+                    .append(",\"message\":").append(Reporter.escape(this.message))
+                    .append("}").toString();
+        }
+    }
+
+    /**
+     * Internal class for the settings of an engine. The command line captures
+     * its options when the tasks are loaded, engines of other applications
+     * use the defaults, so that a review does not depend on the options.
+     */
+    private static final class Settings {
+
+        /** performs changes with PATCH and REMOVE (option -x) */
+        private final boolean replace;
+
+        /** format of the findings (option -f) */
+        private final String format;
+
+        /** profiles the sections (option -p) */
+        private final boolean profile;
+
+        /** time budget in ms per match (option -b, 0 unlimited) */
+        private final long budget;
+
+        /** time budget in ms per file (option -b, 0 unlimited) */
+        private final long limit;
+
+        /** maximum size of the files in MB (option -s, 0 unlimited) */
+        private final int size;
+
+        /** size in MB from which files are mapped into memory (option -m) */
+        private final int mapping;
+
+        /** size in KB of the chunks of large files for DETECT (option -c) */
+        private final int chunk;
+
+        /** maximum match span in KB beyond the end of a chunk (option -c) */
+        private final int span;
+
+        /** indicator whether the hashes of the contents are needed (option -i) */
+        private final boolean indexed;
+
+        /** memory budget of the contents in flight (option -q) */
+        private final Quota quota;
+
+        /** Constructor, creates a new Settings object with the defaults. */
+        private Settings() {
+            this(false, null, false, 0, 0, 0, 0, 0, 64, false, null);
+        }
+
+        /**
+         * Constructor, creates a new Settings object.
+         * @param replace performs changes with PATCH and REMOVE
+         * @param format  format of the findings, otherwise null
+         * @param profile profiles the sections
+         * @param budget  time budget in ms per match
+         * @param limit   time budget in ms per file
+         * @param size    maximum size of the files in MB
+         * @param mapping size in MB from which files are mapped into memory
+         * @param chunk   size in KB of the chunks of large files
+         * @param span    maximum match span in KB beyond a chunk
+         * @param indexed true if the hashes of the contents are needed
+         * @param quota   memory budget of the contents, otherwise null
+         */
+        private Settings(boolean replace, String format, boolean profile, long budget, long limit,
+                int size, int mapping, int chunk, int span, boolean indexed, Quota quota) {
+            this.replace = replace;
+            this.format = format;
+            this.profile = profile;
+            this.budget = budget;
+            this.limit = limit;
+            this.size = size;
+            this.mapping = mapping;
+            this.chunk = chunk;
+            this.span = span;
+            this.indexed = indexed;
+            this.quota = quota;
+        }
+
+        /**
+         * Captures the options of the command line.
+         * @return the settings of the options
+         */
+        private static Settings capture() {
+            return new Settings(Options.replace, Options.format, Options.profile, Options.budget, Options.limit,
+                    Options.size, Options.mapping, Options.chunk, Options.span, Options.index != null, Review.quota);
+        }
+    }
+
+    /** 
+     * Inner class for a Worker. 
+     * Worker are executed by the executor and perform the analysis of a file.
+     * Review has a configurable number of threads for the workers, with option
+     * -v each worker uses a virtual thread of its own. A review is a set of
+     * tasks. Errors of a file are counted and written to the output, the
+     * review of the other files continues. At the end, the worker releases
+     * the place of the file in flight.
+     */
+    private static class Worker implements Runnable {
+
+        /** file of the review */
+        private final File file;
+
+        /**
+         * Constructor, creates the Worker for a file.
+         * @param file file
+         */
+        private Worker(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+
+            File file = this.file;
+            Source source = new Source(file, Review.engine, Review.statistics);
+            try {
+
+                Engine engine = source.engine;
+                BitSet selection = engine.selector.select(source);
+                if (!selection.isEmpty()
+                        && !source.isReviewable()) {
+                    Review.statistics.skipped.increment();
+                    return;
+                }
+                Index.Record record = Review.index != null
+                        && !selection.isEmpty() ? Review.index.open(source) : null;
+                boolean complete = engine.perform(source, selection, record);
+
+                if (record != null
+                        && complete
+                        && !source.failed
+                        && !source.isModified())
+                    Review.index.close(record, source);
+
+                // The changes of all tasks are written only once at the end,
+                // and only if the review of the file was complete and without
+                // errors, otherwise the file remains untouched.
+                if (complete
+                        && !source.failed)
+                    try {source.commit();
+                    } catch (IOException exception) {
+                        source.print("%nERROR: Occurred while writing %s%n", file);
+                        source.print(exception);
+                        Review.statistics.errors.increment();
+                    }
+
+            } catch (Throwable throwable) {
+                source.failed = true;
+                source.print("%nERROR: Occurred while reviewing %s%n", file);
+                source.print(throwable);
+                Review.statistics.errors.increment();
+
+            } finally {
+                Review.reporter.report(source);
+                source.release();
+                Review.flight.release();
+            }
+        }
+    }
+    
+    /**
+     * Internal class for the output of the files during the review.
+     * The workers collect the output of a file and pass it to the reporter
+     * as one block, without waiting for the output. A separate thread writes
+     * the blocks to the system output stream, several blocks at once, which
+     * keeps the output of the files together. With option -o, the blocks are
+     * collected and written sorted by path at the end of the review.
+     * With option -f, the findings are written as records of a JSON Lines or
+     * a SARIF document, one record per line, which are written as they come,
+     * so that the memory is not limited by the number of findings. The
+     * reporter is used for all reviews of a session, each review is opened
+     * and completed as one output.
+     */
+    private static class Reporter implements Runnable {
+
+        /** maximum size of the output written at once (characters) */
+        private static final int BUFFER = 65536;
+
+        /** output stream of the findings */
+        private static PrintStream output = System.out;
+
+        /** marker for the end of the blocks of a review */
+        private static final Map.Entry<String, String> COMPLETE = Map.entry("", "");
+
+        /** marker for the end of the blocks */
+        private static final Map.Entry<String, String> END = Map.entry("", "");
+
+        /** queue of the blocks (path and output) */
+        private final BlockingQueue<Map.Entry<String, String>> queue;
+
+        /** blocks sorted by path (only with option -o) */
+        private final Map<String, String> blocks;
+
+        /** thread of the reporter */
+        private final Thread thread;
+
+        /** signal of the thread that the blocks of a review are written */
+        private final Semaphore completion;
+
+        /** mergeable result of the review (only with option -r) */
+        private volatile Result result;
+
+        /** number of the written records (only with format sarif) */
+        private long records;
+
+        /**
+         * Constructor, creates and starts a new Reporter object.
+         * @param sorted true for the output sorted by path
+         */
+        private Reporter(boolean sorted) {
+            this.queue = new LinkedBlockingQueue<>();
+            this.blocks = sorted ? new TreeMap<>() : null;
+            this.completion = new Semaphore(0);
+            this.thread = new Thread(this, "Reporter");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        /**
+         * Begins the output of a review. With format sarif, the beginning of
+         * the document with the rules of the tasks is written immediately.
+         * @param rules  primary patterns of the tasks by number
+         * @param result mergeable result of the review, otherwise null
+         */
+        private void open(Map<String, String> rules, Result result) {
+            this.result = result;
+            this.records = 0;
+            if ("sarif".equals(Options.format)) {
+                StringBuilder buffer = new StringBuilder()
+                        .append("{\"version\":\"2.1.0\",")
+                        .append("\"$schema\":\"https://json.schemastore.org/sarif-2.1.0.json\",")
+                        .append("\"runs\":[{\"tool\":{\"driver\":{\"name\":\"Review\",")
+                        .append("\"rules\":[");
+                for (Map.Entry<String, String> rule : rules.entrySet())
+                    buffer.append(this.records++ > 0 ? "," : "").append(System.lineSeparator())
+                            .append("{\"id\":").append(Reporter.escape(rule.getKey()))
+                            .append(",\"shortDescription\":{\"text\":")
+                            .append(Reporter.escape(rule.getValue())).append("}}");
+                this.records = 0;
+                Reporter.output.print(buffer.append("]}},")
+                        .append(System.lineSeparator())
+                        .append("\"results\":["));
+            }
+        }
+
+        /**
+         * Passes the output of a file for writing.
+         * @param source source of the file
+         */
+        private void report(Source source) {
+            if (source.output.length() > 0)
+                this.report(source.file.getPath(), source.output.toString());
+        }
+
+        /**
+         * Passes the output of a file for writing.
+         * @param path  path of the file
+         * @param block output of the file
+         */
+        private void report(String path, String block) {
+            this.queue.add(Map.entry(path, block));
+        }
+
+        /**
+         * Writes the remaining output of a review. With option -o, the
+         * collected blocks are written sorted by path, with format sarif the
+         * document is completed.
+         * @throws InterruptedException
+         *     In case the waiting for the reporter was interrupted.
+         */
+        private void complete()
+                throws InterruptedException {
+            this.queue.add(Reporter.COMPLETE);
+            this.completion.acquire();
+            this.result = null;
+            StringBuilder buffer = new StringBuilder();
+            if (this.blocks != null) {
+                for (String block : this.blocks.values())
+                    this.write(buffer, block);
+                this.blocks.clear();
+            }
+            if ("sarif".equals(Options.format))
+                buffer.append(System.lineSeparator()).append("]}]}")
+                        .append(System.lineSeparator());
+            Reporter.output.print(buffer);
+            Reporter.output.flush();
+        }
+
+        /**
+         * Ends the reporter.
+         * @throws InterruptedException
+         *     In case the waiting for the reporter was interrupted.
+         */
+        private void close()
+                throws InterruptedException {
+            this.queue.add(Reporter.END);
+            this.thread.join();
+        }
+
+        /**
+         * Appends a block to the output. With format sarif, the records are
+         * separated by commas.
+         * @param buffer buffer of the output
+         * @param block  block of a file
+         */
+        private void write(StringBuilder buffer, String block) {
+            if (!"sarif".equals(Options.format)) {
+                buffer.append(block);
+                return;
+            }
+            for (String record : block.split("\\R")) {
+                if (record.isEmpty())
+                    continue;
+                buffer.append(this.records++ > 0 ? "," : "")
+                        .append(System.lineSeparator()).append(record);
+            }
+        }
+
+        /**
+         * Escapes a text as JSON string.
+         * @param  text text
+         * @return the text as JSON string
+         */
+        private static String escape(String text) {
+            StringBuilder builder = new StringBuilder(text.length() +2).append('"');
+            for (int loop = 0; loop < text.length(); loop++) {
+                char digit = text.charAt(loop);
+                if (digit == '"' || digit == '\\')
+                    builder.append('\\').append(digit);
+                else if (digit == '\n')
+                    builder.append("\\n");
+                else if (digit == '\r')
+                    builder.append("\\r");
+                else if (digit == '\t')
+                    builder.append("\\t");
+                else if (digit < 0x20 || digit == 0x2028 || digit == 0x2029)
+                    builder.append(String.format("\\u%04x", (int)digit));
+                else builder.append(digit);
+            }
+            return builder.append('"').toString();
+        }
+
+        /**
+         * Creates the record of a finding in the format of option -f.
+         * @param  finding finding
+         * @return the record of the finding as one line
+         */
+        private static String record(Finding finding) {
+            if (!"sarif".equals(Options.format))
+                return finding.toString();
+            String path = finding.path.replace('\\', '/');
+            try {path = new URI(null, null, path, null).getRawPath();
+            } catch (URISyntaxException exception) {
+                path = path.replace(" ", "%20");
+            }
+            String message = finding.message;
+            if (message.isEmpty())
+                message = (finding.patched ? "PATCHED" : "DETECTED") + " match of section #" + finding.section;
+            return new StringBuilder()
+                    .append("{\"ruleId\":").append(Reporter.escape(String.valueOf(finding.section)))
+                    .append(",\"level\":").append(finding.patched ? "\"note\"" : "\"warning\"")
+                    .append(",\"message\":{\"text\":").append(Reporter.escape(message)).append("}")
+                    .append(",\"locations\":[{\"physicalLocation\":{")
+                    .append("\"artifactLocation\":{\"uri\":").append(Reporter.escape(path)).append("},")
+                    .append("\"region\":{\"startLine\":").append(finding.line)
+                    .append(",\"startColumn\":").append(finding.column)
+                    .append(",\"charOffset\":").append(finding.start)
+                    .append(",\"charLength\":").append(finding.end -finding.start)
+                    .append(",\"snippet\":{\"text\":").append(Reporter.escape(finding.match))
+                    .append("}}}}]}").toString();
+        }
+
+        @Override
+        public void run() {
+            StringBuilder buffer = new StringBuilder();
+            for (boolean end = false; !end;) {
+                boolean complete = false;
+                try {
+                    Map.Entry<String, String> block = this.queue.take();
+                    while (block != null) {
+                        if (block == Reporter.END) {
+                            end = true;
+                            break;
+                        }
+                        if (block == Reporter.COMPLETE) {
+                            complete = true;
+                            break;
+                        }
+                        if (this.result != null)
+                            this.result.write(block.getKey(), block.getValue());
+                        if (this.blocks != null)
+                            this.blocks.merge(block.getKey(), block.getValue(), String::concat);
+                        else this.write(buffer, block.getValue());
+                        if (buffer.length() >= Reporter.BUFFER)
+                            break;
+                        block = this.queue.poll();
+                    }
+                } catch (InterruptedException exception) {
+                    end = true;
+                }
+                if (buffer.length() > 0) {
+                    Reporter.output.print(buffer);
+                    buffer.setLength(0);
+                }
+                if (complete)
+                    this.completion.release();
+            }
+        }
+    }
+
+    /**
+     * Internal class for the result of a review in a mergeable form (option
+     * -r). The result contains the output per file as written by the reporter
+     * and at the end the counters of the summary. The shards of a review
+     * (option -n) write their results separately on the nodes, option --merge
+     * combines them into one output and summary. The result is written to a
+     * temporary file while the review is running, which replaces the file at
+     * the end, so the file is never in a partial state.
+     */
+    private static class Result {
+
+        /** signature of the format of the result file */
+        private static final String SIGNATURE = "Review Result 2";
+
+        /** file of the result */
+        private final File file;
+
+        /** temporary file while the review is running */
+        private final Path temp;
+
+        /** output stream of the temporary file */
+        private final DataOutputStream output;
+
+        /** first error while writing, is thrown when closing */
+        private IOException failure;
+
+        /**
+         * Constructor, creates a new Result object and writes the beginning of
+         * the result with the format, the identity of the review, the shard
+         * and the rules of the tasks.
+         * @param  file     file of the result
+         * @param  identity identity of the review (see identify)
+         * @param  rules    primary patterns of the tasks by number
+         * @throws IOException
+         *     In the case of the failed file access.
+         */
+        private Result(File file, String identity, Map<String, String> rules)
+                throws IOException {
+            Path path = file.toPath().toAbsolutePath();
+            this.file = file;
+            this.temp = Files.createTempFile(path.getParent(), "." + path.getFileName() + ".", ".tmp");
+            try {
+                this.output = new DataOutputStream(new BufferedOutputStream(
+                        new GZIPOutputStream(Files.newOutputStream(this.temp), Reporter.BUFFER), Reporter.BUFFER));
+                this.output.writeUTF(Result.SIGNATURE);
+                this.output.writeUTF(Options.format != null ? Options.format : "");
+                this.output.writeUTF(identity);
+                this.output.writeInt(Options.shard);
+                this.output.writeInt(Options.shards);
+                this.output.writeInt(rules.size());
+                for (Map.Entry<String, String> rule : rules.entrySet()) {
+                    this.output.writeUTF(rule.getKey());
+                    Index.writeText(this.output, rule.getValue());
+                }
+            } catch (IOException exception) {
+                Files.deleteIfExists(this.temp);
+                throw exception;
+            }
+        }
+
+        /**
+         * Determines the identity of a review from the identities of the tasks
+         * and the options that affect the findings, so that only results of
+         * the same review are merged.
+         * @param  tasks tasks
+         * @return the identity of the review as hash
+         */
+        private static String identify(List<Task> tasks) {
+            MessageDigest digest = Index.createDigest();
+            for (Task task : tasks)
+                digest.update(Index.identify(task).getBytes(StandardCharsets.UTF_8));
+            digest.update(String.format("%d %d %d", Options.size, Options.budget, Options.limit)
+                    .getBytes(StandardCharsets.UTF_8));
+            return Index.encode(digest.digest());
+        }
+
+        /**
+         * Writes the output of a file. Errors are kept until the result is
+         * closed, so that the output of the review is not interrupted.
+         * @param path  path of the file
+         * @param block output of the file
+         */
+        private void write(String path, String block) {
+            if (this.failure != null)
+                return;
+            try {
+                this.output.writeBoolean(true);
+                Index.writeText(this.output, path);
+                Index.writeText(this.output, block);
+            } catch (IOException exception) {
+                this.failure = exception;
+            }
+        }
+
+        /**
+         * Writes the counters of the summary and replaces the file of the
+         * result with the temporary file.
+         * @param  count      number of found files
+         * @param  statistics statistics of the review
+         * @param  duration   duration in milliseconds
+         * @throws IOException
+         *     In the case of the failed file access.
+         */
+        private void close(long count, Statistics statistics, long duration)
+                throws IOException {
+            try {
+                if (this.failure != null)
+                    throw this.failure;
+                this.output.writeBoolean(false);
+                this.output.writeLong(count);
+                this.output.writeLong(statistics.founds.sum());
+                this.output.writeLong(statistics.corrections.sum());
+                this.output.writeLong(statistics.errors.sum());
+                this.output.writeLong(statistics.reviews.sum());
+                this.output.writeLong(statistics.files.sum());
+                this.output.writeLong(statistics.skipped.sum());
+                this.output.writeLong(statistics.volume.sum());
+                this.output.writeLong(duration);
+                this.output.close();
+                Path path = this.file.toPath().toAbsolutePath();
+                try {Files.move(this.temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException exception) {
+                    Files.move(this.temp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                this.output.close();
+                Files.deleteIfExists(this.temp);
+            }
+        }
+
+        /**
+         * Opens a result file and reads the beginning up to the output of
+         * the files. The rules of the tasks are added to the passed rules.
+         * @param  file     file of the result
+         * @param  identity identity of the review of the result
+         * @param  rules    primary patterns of the tasks by number
+         * @param  shards   shard and number of the shards of the result
+         * @return the input stream positioned at the output of the files
+         * @throws IOException
+         *     In the case of the failed file access or an invalid result.
+         * @throws ReviewException
+         *     In case the format differs from option -f.
+         */
+        private static DataInputStream open(File file, String[] identity, Map<String, String> rules, int[] shards)
+                throws IOException, ReviewException {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(Files.newInputStream(file.toPath()), Reporter.BUFFER), Reporter.BUFFER));
+            try {
+                if (!Result.SIGNATURE.equals(input.readUTF()))
+                    throw new IOException("Invalid signature");
+                String format = input.readUTF();
+                if (!format.equals(Options.format != null ? Options.format : ""))
+                    throw new ReviewException(String.format("The format of %s is %s, use the same option -f for the merge",
+                            file, format.isEmpty() ? "text" : format));
+                identity[0] = input.readUTF();
+                shards[0] = input.readInt();
+                shards[1] = input.readInt();
+                for (int count = input.readInt(); count > 0; count--)
+                    rules.putIfAbsent(input.readUTF(), Index.readText(input));
+                return input;
+            } catch (IOException | ReviewException exception) {
+                input.close();
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Internal class for the selection of the tasks for a file.
+     * The file filters of all tasks are compiled together. Tasks with the same
+     * include and exclude patterns form a group whose patterns are evaluated
+     * only once per file, and the canonical path is determined only once per
+     * file for all groups. The result is the set of the applicable tasks.
+     */
+    private static class Selector {
+
+        /** patterns of the included files per group (optional) */
+        private final Pattern[] includes;
+
+        /** patterns of the excluded files per group (optional) */
+        private final Pattern[] excludes;
+
+        /** tasks per group */
+        private final Task[][] groups;
+
+        /**
+         * Constructor, creates a new Selector object.
+         * @param tasks tasks
+         */
+        private Selector(List<Task> tasks) {
+
+            Map<List<String>, List<Task>> groups = new LinkedHashMap<>();
+            for (Task task : tasks)
+                groups.computeIfAbsent(Arrays.asList(
+                        task.include != null ? task.include.pattern() : null,
+                        task.exclude != null ? task.exclude.pattern() : null),
+                        key -> new ArrayList<>()).add(task);
+
+            this.includes = new Pattern[groups.size()];
+            this.excludes = new Pattern[groups.size()];
+            this.groups = new Task[groups.size()][];
+            int index = 0;
+            for (List<Task> group : groups.values()) {
+                this.includes[index] = group.get(0).include;
+                this.excludes[index] = group.get(0).exclude;
+                this.groups[index++] = group.toArray(new Task[0]);
+            }
+        }
+
+        /**
+         * Determines the tasks whose file filters accept the file of a source.
+         * If the canonical path of the file cannot be determined, no task is
+         * applicable.
+         * @param  source source
+         * @return the indices of the applicable tasks
+         */
+        private BitSet select(Source source) {
+
+            BitSet selection = new BitSet();
+            boolean profile = source.engine.settings.profile;
+            long timing = profile ? System.nanoTime() : 0;
+            String name;
+            try {name = source.file.getCanonicalPath().replace('\\', '/');
+            } catch (IOException exception) {
+                return selection;
+            } finally {
+                if (profile)
+                    source.statistics.filtering.add(System.nanoTime() -timing);
+            }
+
+            for (int index = 0; index < this.groups.length; index++) {
+                timing = profile ? System.nanoTime() : 0;
+                boolean accept = (this.includes[index] == null
+                            || this.includes[index].matcher(name).matches())
+                        && (this.excludes[index] == null
+                                || !this.excludes[index].matcher(name).matches());
+                if (accept)
+                    for (Task task : this.groups[index])
+                        selection.set(task.index);
+
+                // The time of a group is shared by its tasks, so that the
+                // profile of the tasks adds up to the time of the filters.
+                if (profile) {
+                    timing = System.nanoTime() -timing;
+                    source.statistics.filtering.add(timing);
+                    for (Task task : this.groups[index])
+                        task.statistics.filtering.add(timing /this.groups[index].length);
+                }
+            }
+            return selection;
+        }
+    }
+
+    /**
+     * Internal class for the literal prefilter of the tasks.
+     * Most primary patterns require a literal text, which must be contained in
+     * the content so that the pattern can match. The prefilter is an
+     * Aho-Corasick automaton of these literals, which determines in one pass
+     * over the content the tasks whose literals occur. Only for these tasks and
+     * for tasks without literal the primary pattern must be searched.
+     * Characters are compared case-folded, so a literal is found for case
+     * sensitive and case-insensitive patterns.
+     */
+    private static class Prefilter {
+
+        /** characters of the transitions per state (sorted) */
+        private final char[][] characters;
+
+        /** target states of the transitions per state */
+        private final int[][] targets;
+
+        /** state for the longest proper suffix per state */
+        private final int[] failures;
+
+        /** indices of the tasks whose literal ends in the state */
+        private final int[][] outputs;
+
+        /** target states of the initial state for 7-bit characters */
+        private final int[] roots;
+
+        /** number of tasks with literal */
+        private final int count;
+
+        /**
+         * Constructor, creates a new Prefilter object.
+         * @param tasks tasks
+         */
+        private Prefilter(List<Task> tasks) {
+
+            List<TreeMap<Character, Integer>> transitions = new ArrayList<>();
+            List<List<Integer>> outputs = new ArrayList<>();
+            transitions.add(new TreeMap<>());
+            outputs.add(new ArrayList<>());
+
+            int count = 0;
+            for (Task task : tasks) {
+                if (task.conditions[0].literal == null)
+                    continue;
+                int state = 0;
+                for (char digit : task.conditions[0].literal.toCharArray()) {
+                    Integer target = transitions.get(state).get(digit);
+                    if (target == null) {
+                        target = transitions.size();
+                        transitions.get(state).put(digit, target);
+                        transitions.add(new TreeMap<>());
+                        outputs.add(new ArrayList<>());
+                    }
+                    state = target;
+                }
+                outputs.get(state).add(task.index);
+                count++;
+            }
+            this.count = count;
+
+            int size = transitions.size();
+            this.characters = new char[size][];
+            this.targets = new int[size][];
+            this.failures = new int[size];
+            this.outputs = new int[size][];
+            for (int state = 0; state < size; state++) {
+                this.characters[state] = new char[transitions.get(state).size()];
+                this.targets[state] = new int[transitions.get(state).size()];
+                int index = 0;
+                for (Map.Entry<Character, Integer> entry : transitions.get(state).entrySet()) {
+                    this.characters[state][index] = entry.getKey();
+                    this.targets[state][index++] = entry.getValue();
+                }
+            }
+
+            // The failure states are determined in breadth-first order, so
+            // that the state of the shorter suffix is already known. The
+            // outputs of the failure state are taken over.
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int target : this.targets[0])
+                queue.add(target);
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (int index = 0; index < this.characters[state].length; index++) {
+                    int target = this.targets[state][index];
+                    int failure = this.failures[state];
+                    int next;
+                    while ((next = this.transit(failure, this.characters[state][index])) < 0
+                            && failure != 0)
+                        failure = this.failures[failure];
+                    this.failures[target] = Math.max(0, next);
+                    outputs.get(target).addAll(outputs.get(this.failures[target]));
+                    queue.add(target);
+                }
+            }
+            for (int state = 0; state < size; state++)
+                this.outputs[state] = outputs.get(state).stream().distinct().mapToInt(Integer::intValue).toArray();
+
+            this.roots = new int[128];
+            for (char digit = 0; digit < this.roots.length; digit++)
+                this.roots[digit] = this.transit(0, digit);
+        }
+
+        /**
+         * Returns the case-folded character.
+         * @param  digit character
+         * @return the case-folded character
+         */
+        private static char fold(char digit) {
+            if (digit < 128)
+                return digit >= 'A' && digit <= 'Z' ? (char)(digit +32) : digit;
+            return Character.toLowerCase(Character.toUpperCase(digit));
+        }
+
+        /**
+         * Returns the target state of a transition.
+         * @param  state state
+         * @param  digit character
+         * @return the target state, otherwise -1
+         */
+        private int transit(int state, char digit) {
+            int index = Arrays.binarySearch(this.characters[state], digit);
+            return index < 0 ? -1 : this.targets[state][index];
+        }
+
+        /**
+         * Determines the tasks whose literals are contained in the content.
+         * @param  content content
+         * @return the indices of the tasks whose literals were found
+         */
+        private BitSet scan(CharSequence content) {
+            BitSet found = new BitSet();
+            if (this.count <= 0)
+                return found;
+            int hits = 0;
+            int state = 0;
+            for (int loop = 0, length = content.length(); loop < length; loop++) {
+                char digit = Prefilter.fold(content.charAt(loop));
+                int next;
+                while (true) {
+                    next = state == 0 ? (digit < 128 ? this.roots[digit] : this.transit(0, digit)) : this.transit(state, digit);
+                    if (next >= 0
+                            || state == 0)
+                        break;
+                    state = this.failures[state];
+                }
+                state = Math.max(0, next);
+                for (int index : this.outputs[state]) {
+                    if (found.get(index))
+                        continue;
+                    found.set(index);
+                    if (++hits >= this.count)
+                        return found;
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Internal class for the statistics of the review and of the tasks.
+     * The counters are incremented concurrently by the workers. LongAdder
+     * avoids lost updates and contention, the counters are only summed up for
+     * the output.
+     */
+    private static class Statistics {
+
+        /** number of sites */
+        private final LongAdder founds = new LongAdder();
+
+        /** number of corrections */
+        private final LongAdder corrections = new LongAdder();
+
+        /** amount of processed data (bytes, for tasks characters) */
+        private final LongAdder volume = new LongAdder();
+
+        /** amount of processed files */
+        private final LongAdder files = new LongAdder();
+
+        /** amount of skipped files (binary or oversized) */
+        private final LongAdder skipped = new LongAdder();
+
+        /** number of occurring errors */
+        private final LongAdder errors = new LongAdder();
+
+        /** number of performed reviews */
+        private final LongAdder reviews = new LongAdder();
+
+        /** time of file filtering (nanoseconds, only with profiling) */
+        private final LongAdder filtering = new LongAdder();
+
+        /** time of primary matching (nanoseconds, only with profiling) */
+        private final LongAdder matching = new LongAdder();
+
+        /** time of sub-pattern evaluation (nanoseconds, only with profiling) */
+        private final LongAdder evaluating = new LongAdder();
+
+        /**
+         * Returns the total time of filtering, matching and evaluating.
+         * @return the total time in nanoseconds
+         */
+        private long getTiming() {
+            return this.filtering.sum() +this.matching.sum() +this.evaluating.sum();
+        }
+
+        /** Resets all counters, e.g. for the next review of the watch mode. */
+        private void reset() {
+            for (LongAdder counter : new LongAdder[] {this.founds, this.corrections, this.volume, this.files,
+                    this.skipped, this.errors, this.reviews, this.filtering, this.matching, this.evaluating})
+                counter.reset();
+        }
+    }
+
+    /**
+     * Internal class for the outcome of a task for a file.
+     * The outcome contains the output and the counters of the review, so
+     * that it can be reused by the index if the file and the task have not
+     * been changed.
+     */
+    private static class Outcome {
+
+        /** output */
+        private final String output;
+
+        /** number of sites */
+        private final long founds;
+
+        /** number of corrections */
+        private final long corrections;
+
+        /** number of performed reviews */
+        private final long reviews;
+
+        /**
+         * Constructor, creates a new Outcome object.
+         * @param output      output
+         * @param founds      number of sites
+         * @param corrections number of corrections
+         * @param reviews     number of performed reviews
+         */
+        private Outcome(String output, long founds, long corrections, long reviews) {
+            this.output = output;
+            this.founds = founds;
+            this.corrections = corrections;
+            this.reviews = reviews;
+        }
+    }
+
+    /**
+     * Internal class for the index of the previous reviews (option -i).
+     * The index stores the outcomes of the tasks per file. Files are
+     * identified by path, size and time of the last change, if only the time
+     * differs, the hash of the content decides. Tasks are identified by a
+     * hash of line number, conditions, command and action. For unchanged
+     * files, the outcome of unchanged tasks is output again instead of
+     * performing the task, so that only changed files and tasks are reviewed.
+     * The outcomes contain the path of the file as written in the output, so
+     * they are only reused if the file is reviewed with the same path, e.g.
+     * not with another notation of option -d or -l.
+     * The index is read at the start and written at the end of each review.
+     */
+    private static class Index {
+
+        /** signature and version of the file format */
+        private static final String SIGNATURE = "Review Index 2";
+
+        /** file of the index */
+        private final File file;
+
+        /** records of the reviewed files */
+        private final Map<String, Record> records;
+
+        /** identities of the tasks */
+        private volatile String[] identities;
+
+        /**
+         * Constructor, creates a new Index object.
+         * A missing, unreadable or incompatible file results in an empty
+         * index, so that all files are reviewed.
+         * @param file file of the index
+         */
+        private Index(File file) {
+
+            this.file = file;
+            this.identities = new String[0];
+
+            Map<String, Record> records = new ConcurrentHashMap<>();
+            if (file.isFile())
+                try (DataInputStream input = new DataInputStream(new GZIPInputStream(
+                        new ByteArrayInputStream(Files.readAllBytes(file.toPath()))))) {
+                    if (!Index.SIGNATURE.equals(input.readUTF()))
+                        throw new IOException("Invalid signature");
+                    for (int count = input.readInt(); count > 0; count--) {
+                        Record record = new Record(input.readUTF(), input.readUTF(), input.readLong(), input.readLong());
+                        record.digest = input.readUTF();
+                        for (int outcomes = input.readInt(); outcomes > 0; outcomes--)
+                            record.outcomes.put(input.readUTF(), new Outcome(Index.readText(input),
+                                    input.readLong(), input.readLong(), input.readLong()));
+                        records.put(record.path, record);
+                    }
+                } catch (IOException exception) {
+                    records.clear();
+                }
+            this.records = records;
+        }
+
+        /**
+         * Determines the identities of the tasks.
+         * @param tasks tasks
+         */
+        private void identify(List<Task> tasks) {
+            String[] identities = new String[tasks.size()];
+            for (Task task : tasks)
+                identities[task.index] = Index.identify(task);
+            this.identities = identities;
+        }
+
+        /**
+         * Determines the identity of a task from line number, conditions,
+         * command and action as well as the options that affect the outcome.
+         * @param  task task
+         * @return the identity of the task as hash
+         */
+        private static String identify(Task task) {
+            StringBuilder builder = new StringBuilder();
+            builder.append(task.number).append('\n')
+                    .append(Options.replace).append('\n')
+                    .append(task.include).append('\n')
+                    .append(task.exclude).append('\n');
+            for (Condition condition : task.conditions)
+                builder.append(condition.getClass().getSimpleName()).append(' ')
+                        .append(condition.type).append(' ')
+                        .append(condition.rule).append('\n');
+            builder.append(task.command).append('\n')
+                    .append(task.action).append('\n')
+                    .append(Options.format);
+            return Index.encode(Index.createDigest()
+                    .digest(builder.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+
+        /**
+         * Creates the algorithm for the hashes.
+         * @return the algorithm for the hashes
+         */
+        private static MessageDigest createDigest() {
+            try {return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+
+        /**
+         * Encodes a hash as hexadecimal text.
+         * @param  bytes hash
+         * @return the hash as hexadecimal text
+         */
+        private static String encode(byte[] bytes) {
+            StringBuilder builder = new StringBuilder();
+            for (byte digit : bytes)
+                builder.append(String.format("%02x", digit & 0xFF));
+            return builder.toString();
+        }
+
+        /**
+         * Reads a text of any length.
+         * @param  input input stream
+         * @return the read text
+         * @throws IOException
+         *     In the case of the failed access.
+         */
+        private static String readText(DataInputStream input)
+                throws IOException {
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Writes a text of any length.
+         * @param  output output stream
+         * @param  text   text
+         * @throws IOException
+         *     In the case of the failed access.
+         */
+        private static void writeText(DataOutputStream output, String text)
+                throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+
+        /**
+         * Opens the record of the current review for a file.
+         * The outcomes of the previous review are taken over if the file has
+         * not been changed since then.
+         * @param  source source of the file
+         * @return the record of the file, otherwise null if the attributes of
+         *     the file are not accessible
+         */
+        private Record open(Source source) {
+
+            BasicFileAttributes attributes;
+            Path path = source.file.toPath().toAbsolutePath().normalize();
+            try {attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException exception) {
+                return null;
+            }
+
+            // A change within the resolution of the time stamp cannot be
+            // recognized by the time, so that for files changed shortly before
+            // the review, the hash of the content always decides.
+            long modified = attributes.lastModifiedTime().toMillis();
+            if (modified >= Review.timing -2000)
+                modified = -1;
+            Record record = new Record(path.toString(), source.file.getPath(), attributes.size(), modified);
+            Record previous = this.records.remove(record.path);
+            if (previous == null
+                    || previous.size != record.size
+                    || !previous.label.equals(record.label))
+                return record;
+            if (previous.modified != record.modified
+                    || record.modified < 0)
+                try {source.getContent();
+                } catch (IOException exception) {
+                    return record;
+                }
+            if (source.digest != null
+                    && !source.digest.equals(previous.digest))
+                return record;
+            record.digest = previous.digest;
+            record.previous = previous.outcomes;
+            return record;
+        }
+
+        /**
+         * Closes the record of a completely reviewed and unchanged file and
+         * takes it over into the index. Files whose record is not closed are
+         * reviewed again next time.
+         * @param record record of the file
+         * @param source source of the file
+         */
+        private void close(Record record, Source source) {
+            if (source.digest != null)
+                record.digest = source.digest;
+            if (record.digest == null
+                    || record.failed)
+                return;
+            record.previous = null;
+            this.records.put(record.path, record);
+        }
+
+        /**
+         * Writes the index. Files that are not reviewed, e.g. with option -l,
+         * keep their records, records of deleted files are removed.
+         * @throws IOException
+         *     In the case of the failed file access.
+         */
+        private void save()
+                throws IOException {
+            this.records.keySet().removeIf(path -> !Files.isRegularFile(Paths.get(path)));
+            List<Record> records = new ArrayList<>(this.records.values());
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (DataOutputStream output = new DataOutputStream(new GZIPOutputStream(buffer))) {
+                output.writeUTF(Index.SIGNATURE);
+                output.writeInt(records.size());
+                for (Record record : records) {
+                    output.writeUTF(record.path);
+                    output.writeUTF(record.label);
+                    output.writeLong(record.size);
+                    output.writeLong(record.modified);
+                    output.writeUTF(record.digest);
+                    output.writeInt(record.outcomes.size());
+                    for (Map.Entry<String, Outcome> entry : record.outcomes.entrySet()) {
+                        output.writeUTF(entry.getKey());
+                        Index.writeText(output, entry.getValue().output);
+                        output.writeLong(entry.getValue().founds);
+                        output.writeLong(entry.getValue().corrections);
+                        output.writeLong(entry.getValue().reviews);
+                    }
+                }
+            }
+            Review.writeFile(this.file, buffer.toByteArray());
+        }
+
+        /** Internal class for the record of a file in the index. */
+        private static class Record {
+
+            /** path of the file */
+            private final String path;
+
+            /** path of the file as written in the output */
+            private final String label;
+
+            /** size of the file */
+            private final long size;
+
+            /** time of the last change of the file (-1 unreliable) */
+            private final long modified;
+
+            /** hash of the content */
+            private String digest;
+
+            /** outcomes of the tasks by identity */
+            private final Map<String, Outcome> outcomes;
+
+            /** outcomes of the previous review (optional) */
+            private Map<String, Outcome> previous;
+
+            /** indicator of failed tasks */
+            private boolean failed;
+
+            /**
+             * Constructor, creates a new Record object.
+             * @param path     path of the file
+             * @param label    path of the file as written in the output
+             * @param size     size of the file
+             * @param modified time of the last change of the file
+             */
+            private Record(String path, String label, long size, long modified) {
+                this.path = path;
+                this.label = label;
+                this.size = size;
+                this.modified = modified;
+                this.outcomes = new HashMap<>();
+            }
+
+            /**
+             * Returns the outcome of the previous review of a task.
+             * @param  task task
+             * @return the outcome of the previous review, otherwise null
+             */
+            private Outcome recall(Task task) {
+                if (this.previous == null)
+                    return null;
+                return this.previous.get(Review.index.identities[task.index]);
+            }
+
+            /**
+             * Remembers the outcome of a task for the index.
+             * @param task    task
+             * @param outcome outcome, null if the task has failed
+             */
+            private void remember(Task task, Outcome outcome) {
+                if (outcome == null)
+                    this.failed = true;
+                else this.outcomes.put(Review.index.identities[task.index], outcome);
+            }
+        }
+    }
+
+    /**
+     * Internal class for the content of a file.
+     * The content is read and decoded only once per review of a file and is
+     * then shared by all tasks. Changes by PATCH and REMOVE are applied to the
+     * content, so that the following tasks use the changed content.
+     */
+    private static class Source {
+
+        /** file */
+        private final File file;
+
+        /** content (decoded) */
+        private CharSequence content;
+
+        /** content as it was read */
+        private CharSequence original;
+
+        /** indicator of errors during the review */
+        private boolean failed;
+
+        /** hash of the content as it was read (only with index) */
+        private String digest;
+
+        /** end of the time budget of the file (nanoseconds) */
+        private final long deadline;
+
+        /** end of the time budget of the current match (nanoseconds) */
+        private long limit;
+
+        /** output of the review of the file */
+        private final StringBuilder output = new StringBuilder();
+
+        /** index of the lines of the content */
+        private Lines lines;
+
+        /** indices of the tasks whose literals are in the content */
+        private BitSet candidates;
+
+        /** content for which the candidates were determined */
+        private CharSequence candidatesContent;
+
+        /** permits of the memory budget held for the content */
+        private int charge;
+
+        /** engine with the tasks of the review */
+        private final Engine engine;
+
+        /** findings of the review (only with the engine API) */
+        private List<Finding> findings;
+
+        /** statistics of the review */
+        private final Statistics statistics;
+
+        /**
+         * Constructor, creates a new Source object.
+         * @param file       file
+         * @param engine     engine with the tasks of the review
+         * @param statistics statistics of the review
+         */
+        private Source(File file, Engine engine, Statistics statistics) {
+            this.file = file;
+            this.engine = engine;
+            this.statistics = statistics;
+            this.deadline = engine.settings.limit > 0 ? System.nanoTime() +engine.settings.limit *1000000L : Long.MAX_VALUE;
+            this.limit = this.deadline;
+        }
+
+        /**
+         * Marks the review of the file as failed. With the engine API, the
+         * error is added to the findings with the command ERROR.
+         * @param section line number of the section, otherwise 0
+         * @param message message of the error
+         */
+        private void fail(long section, String message) {
+            this.failed = true;
+            if (this.findings != null)
+                this.findings.add(new Finding(this.file.getPath(), section, "ERROR", false, 0, 0, 0, 0, "", message));
+        }
+
+        /**
+         * Writes a message to the output of the file. With a machine-readable
+         * format, the message is written directly to the error stream.
+         * @param message message
+         */
+        private void print(Object message) {
+            if (this.engine.settings.format != null)
+                Review.print(message);
+            else this.report(message);
+        }
+
+        /**
+         * Writes findings to the output of the file.
+         * @param findings findings
+         */
+        private void report(Object findings) {
+            this.output.append(Review.format(findings)).append(System.lineSeparator());
+        }
+
+        /**
+         * Writes a formatted message to the output of the file.
+         * @param message message
+         * @param values  value(s)
+         */
+        private void print(String message, Object... values) {
+            this.print(String.format(message, values));
+        }
+
+        /**
+         * Checks whether the file is suitable for the review.
+         * Files larger than option -s and binary files are not reviewed. A file
+         * is considered binary if the beginning contains NUL bytes or more
+         * than 10% control characters and byte sequences that are invalid in
+         * the default charset. Some invalid characters, e.g. umlauts of
+         * another charset, are tolerated. If the file cannot be read, the
+         * error is reported by the review.
+         * @return true if the file is suitable for the review
+         */
+        private boolean isReviewable() {
+
+            byte[] bytes = new byte[Review.SNIFFING];
+            int length;
+            try {
+                Path path = this.file.toPath();
+                if (this.engine.settings.size > 0
+                        && Files.size(path) > this.engine.settings.size *1024L *1024L)
+                    return false;
+                try (InputStream input = Files.newInputStream(path)) {
+                    length = input.readNBytes(bytes, 0, bytes.length);
+                }
+            } catch (IOException exception) {
+                return true;
+            }
+
+            int invalid = 0;
+            for (int loop = 0; loop < length; loop++) {
+                int digit = bytes[loop] & 0xFF;
+                if (digit == 0)
+                    return false;
+                if (digit < 0x20
+                        && digit != '\t'
+                        && digit != '\n'
+                        && digit != '\r'
+                        && digit != '\f'
+                        && digit != '\b'
+                        && digit != 0x1B)
+                    invalid++;
+            }
+
+            // The beginning can end within a multibyte character, which is
+            // therefore not considered invalid if the file is longer.
+            CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            ByteBuffer input = ByteBuffer.wrap(bytes, 0, length);
+            CharBuffer output = CharBuffer.allocate(length);
+            for (CoderResult result; (result = decoder.decode(input, output, length < bytes.length)).isError();) {
+                invalid += result.length();
+                input.position(input.position() +result.length());
+            }
+            return invalid *10 <= length;
+        }
+
+        /**
+         * Starts the time budget for a match, which ends at the latest with
+         * the time budget of the file.
+         */
+        private void startBudget() {
+            this.limit = this.engine.settings.budget > 0
+                    ? Math.min(this.deadline, System.nanoTime() +this.engine.settings.budget *1000000L) : this.deadline;
+        }
+
+        /**
+         * Returns a text for the search of patterns, which is bound to the
+         * time budget. Without time budgets, it is the passed text.
+         * @param  text text
+         * @return the text bound to the time budget
+         */
+        private CharSequence bind(CharSequence text) {
+            if (this.engine.settings.budget <= 0
+                    && this.engine.settings.limit <= 0)
+                return text;
+            return new Budget(text, this);
+        }
+
+        /**
+         * Returns the content of the file.
+         * The file is read when the content is requested for the first time.
+         * Files from the size of option -m are mapped into memory instead,
+         * if the content can be decoded byte by byte (see Mapping), but not
+         * with option -x, because a mapping is only released by the garbage
+         * collection and, depending on the platform, prevents the file from
+         * being replaced with the changes.
+         * With option -q, the content read onto the heap is charged to the
+         * memory budget. If the budget is exhausted, the file is mapped into
+         * memory as well, except with option -x, otherwise the method waits
+         * until the budget is available.
+         * @return the content of the file
+         * @throws IOException
+         *     In the case of the failed file access.
+         */
+        private CharSequence getContent()
+                throws IOException {
+            if (this.content != null)
+                return this.content;
+            Settings settings = this.engine.settings;
+            Path path = this.file.toPath();
+            long size = Files.size(path);
+            boolean mapping = settings.mapping > 0
+                    && !settings.replace
+                    && size >= settings.mapping *1024L *1024L
+                    && size <= Integer.MAX_VALUE;
+            if (mapping)
+                this.content = Mapping.map(path);
+            if (this.content == null
+                    && settings.quota != null
+                    && this.charge <= 0) {
+                int charge = settings.quota.measure(size);
+                if (!settings.quota.tryAcquire(charge)) {
+                    if (!mapping
+                            && !settings.replace
+                            && size <= Integer.MAX_VALUE)
+                        this.content = Mapping.map(path);
+                    if (this.content == null)
+                        settings.quota.acquire(charge);
+                }
+                if (this.content == null)
+                    this.charge = charge;
+            }
+            MessageDigest digest = settings.indexed ? Index.createDigest() : null;
+            if (this.content != null
+                    && digest != null)
+                digest.update(((Mapping)this.content).buffer.duplicate());
+            if (this.content == null) {
+                byte[] bytes = Files.readAllBytes(path);
+                size = bytes.length;
+                if (digest != null)
+                    digest.update(bytes);
+                this.content = new String(bytes);
+            }
+            if (digest != null)
+                this.digest = Index.encode(digest.digest());
+            this.statistics.volume.add(size);
+            this.original = this.content;
+            return this.content;
+        }
+
+        /**
+         * Checks whether a task can match the current content.
+         * This is the case if the literal required by the primary pattern of
+         * the task is contained in the content or if the task does not have a
+         * literal. The literals of all tasks are searched together and again
+         * after the content has been changed. If the file cannot be read, the
+         * task is performed and reports the error.
+         * @param  task task
+         * @return true if the task can match the content
+         */
+        private boolean isCandidate(Task task) {
+            if (task.conditions[0].literal == null)
+                return true;
+            CharSequence content;
+            try {content = this.getContent();
+            } catch (IOException exception) {
+                return true;
+            }
+            if (this.candidates == null
+                    || this.candidatesContent != content) {
+                this.candidates = this.engine.prefilter.scan(content);
+                this.candidatesContent = content;
+            }
+            return this.candidates.get(task.index);
+        }
+
+        /**
+         * Checks whether the content has been changed by the tasks.
+         * @return true if the content has been changed
+         */
+        private boolean isModified() {
+            return this.content != null
+                    && this.content != this.original
+                    && CharSequence.compare(this.content, this.original) != 0;
+        }
+
+        /**
+         * Writes the content back to the file, if it has been changed.
+         * The written bytes are counted in the volume of the statistics. In
+         * the watch mode, size and time of modification are marked, so that
+         * the resulting event does not start another review.
+         * @throws IOException
+         *     In the case of the failed file access.
+         */
+        private void commit()
+                throws IOException {
+            if (!this.isModified())
+                return;
+            byte[] bytes = this.content.toString().getBytes();
+            Review.writeFile(this.file, bytes);
+            this.statistics.volume.add(bytes.length);
+            if (Options.watch) {
+                Path path = this.file.toPath().toAbsolutePath().normalize();
+                Review.written.put(path, Map.entry(Files.size(path), Files.getLastModifiedTime(path)));
+            }
+            this.original = this.content;
+        }
+
+        /**
+         * Releases the memory budget held for the content (option -q).
+         * The content remains usable, but is no longer considered in flight.
+         */
+        private void release() {
+            if (this.charge <= 0)
+                return;
+            this.engine.settings.quota.release(this.charge);
+            this.charge = 0;
+        }
+
+        /**
+         * Returns the index of the lines for the current content.
+         * The index is created when it is requested for the first time and
+         * again after the content has been changed.
+         * @return the index of the lines for the current content
+         * @throws IOException
+         *     In the case of the failed file access.
+         */
+        private Lines getLines()
+                throws IOException {
+            CharSequence content = this.getContent();
+            if (this.lines == null
+                    || this.lines.content != content)
+                this.lines = new Lines(content);
+            return this.lines;
+        }
+    }
+
+    /**
+     * Internal class for a text bound to a time budget (option -b).
+     * The regular expressions access the text only via charAt, also during
+     * backtracking. The text checks at regular intervals whether the time
+     * budget of the source has been exceeded and then cancels the search
+     * with a ReviewBudgetException, so that even catastrophic backtracking
+     * ends after the budget.
+     */
+    private static class Budget implements CharSequence {
+
+        /** interval of the checks in accesses (power of two -1) */
+        private static final int INTERVAL = 0x3FF;
+
+        /** text */
+        private final CharSequence text;
+
+        /** source with the time budget */
+        private final Source source;
+
+        /** number of accesses */
+        private int accesses;
+
+        /**
+         * Constructor, creates a new Budget object.
+         * @param text   text
+         * @param source source with the time budget
+         */
+        private Budget(CharSequence text, Source source) {
+            this.text = text;
+            this.source = source;
+        }
+
+        @Override
+        public int length() {
+            return this.text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if ((++this.accesses & Budget.INTERVAL) == 0
+                    && System.nanoTime() > this.source.limit)
+                throw new ReviewBudgetException("Time budget exceeded");
+            return this.text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new Budget(this.text.subSequence(start, end), this.source);
+        }
+
+        @Override
+        public String toString() {
+            return this.text.toString();
+        }
+    }
+
+    /**
+     * Internal class for the memory budget of the contents (option -q).
+     * The workers charge the budget with the contents that they read onto
+     * the heap and release it when the review of the file is finished, so the
+     * memory of the contents in flight is bounded regardless of the sizes of
+     * the files. A file is charged twice its size, for the bytes read and the
+     * decoded content. If the budget is exhausted, a file is mapped into
+     * memory instead, if possible, otherwise the worker waits until other
+     * workers release enough budget. A file larger than the budget is charged
+     * with the complete budget and is therefore reviewed alone.
+     */
+    private static class Quota {
+
+        /** size of a permit in bytes */
+        private static final int UNIT = 1024;
+
+        /** permits of the budget */
+        private final Semaphore permits;
+
+        /** number of all permits */
+        private final int capacity;
+
+        /**
+         * Constructor, creates a new Quota object.
+         * @param size size of the budget in bytes
+         */
+        private Quota(long size) {
+            this.capacity = (int)Math.max(1, Math.min(Integer.MAX_VALUE, size /Quota.UNIT));
+            this.permits = new Semaphore(this.capacity, true);
+        }
+
+        /**
+         * Determines the permits for a file.
+         * @param  size size of the file in bytes
+         * @return the number of permits for the file
+         */
+        private int measure(long size) {
+            return (int)Math.max(1, Math.min(this.capacity, (size *2 +Quota.UNIT -1) /Quota.UNIT));
+        }
+
+        /**
+         * Acquires permits if they are available immediately.
+         * @param  permits number of permits
+         * @return true if the permits were acquired
+         */
+        private boolean tryAcquire(int permits) {
+            return this.permits.tryAcquire(permits);
+        }
+
+        /**
+         * Acquires permits and waits until they are available.
+         * @param  permits number of permits
+         * @throws InterruptedIOException
+         *     In case the waiting was interrupted.
+         */
+        private void acquire(int permits)
+                throws InterruptedIOException {
+            try {this.permits.acquire(permits);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Waiting for the memory budget was interrupted");
+            }
+        }
+
+        /**
+         * Releases permits.
+         * @param permits number of permits
+         */
+        private void release(int permits) {
+            this.permits.release(permits);
+        }
+    }
+
+    /**
+     * Internal class for the content of a file mapped into memory.
+     * Large files are not copied to the heap, the content is a view of the
+     * mapped bytes that the patterns search like a string. This is only
+     * possible if each byte corresponds to one character, i.e. for single-byte
+     * default charsets or if the file uses only the 7-bit characters of an
+     * ASCII-compatible default charset such as UTF-8. The characters are then
+     * decoded byte by byte with a table.
+     */
+    private static class Mapping implements CharSequence {
+
+        /** characters of the bytes in the default charset */
+        private static final char[] CHARACTERS = new char[256];
+
+        /** indicator whether each byte is decoded as one character */
+        private static final boolean SINGLE;
+
+        /** indicator whether the 7-bit characters are decoded byte by byte */
+        private static final boolean ASCII;
+
+        /** mapped bytes */
+        private final ByteBuffer buffer;
+
+        /** start of the view in the mapped bytes */
+        private final int offset;
+
+        /** length of the view */
+        private final int length;
+
+        static {
+            Charset charset = Charset.defaultCharset();
+            boolean single = charset.newDecoder().maxCharsPerByte() <= 1
+                    && charset.newEncoder().maxBytesPerChar() <= 1;
+            boolean ascii = true;
+            for (int digit = 0; digit < Mapping.CHARACTERS.length; digit++) {
+                String text = new String(new byte[] {(byte)digit}, charset);
+                if (text.length() == 1)
+                    Mapping.CHARACTERS[digit] = text.charAt(0);
+                else single = false;
+                if (digit < 0x80
+                        && (text.length() != 1 || text.charAt(0) != digit))
+                    ascii = false;
+            }
+            SINGLE = single;
+            ASCII = ascii;
+        }
+
+        /**
+         * Constructor, creates a new Mapping object.
+         * @param buffer mapped bytes
+         * @param offset start of the view
+         * @param length length of the view
+         */
+        private Mapping(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Maps a file into memory.
+         * With a single-byte default charset, each file can be mapped. With
+         * an ASCII-compatible charset, the file must not contain bytes from
+         * 0x80. The beginning of the file is read and checked before the
+         * mapping, so that most of these files are not mapped in vain, the
+         * rest is checked eight bytes at once.
+         * @param  path path of the file
+         * @return the content of the mapped file, otherwise null if the file
+         *     cannot be decoded byte by byte
+         * @throws IOException
+         *     In the case of the failed file access.
+         */
+        private static Mapping map(Path path)
+                throws IOException {
+            if (!Mapping.SINGLE
+                    && !Mapping.ASCII)
+                return null;
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (!Mapping.SINGLE) {
+                    ByteBuffer beginning = ByteBuffer.allocate(Review.SNIFFING);
+                    while (beginning.hasRemaining()
+                            && channel.read(beginning) >= 0)
+                        continue;
+                    if (!Mapping.isDecodable(beginning.flip()))
+                        return null;
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (!Mapping.SINGLE
+                    && !Mapping.isDecodable(buffer.duplicate().position(Math.min(Review.SNIFFING, buffer.limit()))))
+                return null;
+            return new Mapping(buffer, 0, buffer.limit());
+        }
+
+        /**
+         * Checks whether the remaining bytes contain 7-bit characters only.
+         * @param  buffer bytes
+         * @return true if all remaining bytes are smaller than 0x80
+         */
+        private static boolean isDecodable(ByteBuffer buffer) {
+            while (buffer.remaining() >= Long.BYTES)
+                if ((buffer.getLong() & 0x8080808080808080L) != 0)
+                    return false;
+            while (buffer.hasRemaining())
+                if ((buffer.get() & 0x80) != 0)
+                    return false;
+            return true;
+        }
+
+        @Override
+        public int length() {
+            return this.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0
+                    || index >= this.length)
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            return Mapping.CHARACTERS[this.buffer.get(this.offset +index) & 0xFF];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0
+                    || end > this.length
+                    || start > end)
+                throw new IndexOutOfBoundsException(String.format("%d-%d", start, end));
+            return new Mapping(this.buffer, this.offset +start, end -start);
+        }
+
+        @Override
+        public String toString() {
+            char[] characters = new char[this.length];
+            for (int loop = 0; loop < this.length; loop++)
+                characters[loop] = Mapping.CHARACTERS[this.buffer.get(this.offset +loop) & 0xFF];
+            return new String(characters);
+        }
+    }
+
+    /**
+     * Internal class for the index of lines of a content.
+     * The index contains the positions of all line breaks (corresponding to
+     * the regular expression \R) and is created in one pass. The line and the
+     * position in the line of a match are then determined with a binary search.
+     */
+    private static class Lines {
+
+        /** content of the index */
+        private final CharSequence content;
+
+        /** positions of the line breaks */
+        private int[] breaks;
+
+        /** number of line breaks */
+        private int count;
+
+        /**
+         * Constructor, creates a new Lines object.
+         * @param content content
+         */
+        private Lines(CharSequence content) {
+            this.content = content;
+            this.breaks = new int[Math.max(16, content.length() /32)];
+            for (int loop = 0; loop < content.length(); loop++) {
+                char digit = content.charAt(loop);
+                if (digit != '\r'
+                        && digit != '\n'
+                        && digit != '\u000B'
+                        && digit != '\u000C'
+                        && digit != '\u0085'
+                        && digit != '\u2028'
+                        && digit != '\u2029')
+                    continue;
+                if (this.count >= this.breaks.length)
+                    this.breaks = Arrays.copyOf(this.breaks, this.breaks.length *2);
+                this.breaks[this.count++] = loop;
+                if (digit == '\r'
+                        && loop +1 < content.length()
+                        && content.charAt(loop +1) == '\n')
+                    loop++;
+            }
+        }
+
+        /**
+         * Returns the number of line breaks before the passed position.
+         * @param  position position
+         * @return the number of line breaks before the passed position
+         */
+        private int count(int position) {
+            int lower = 0;
+            int upper = this.count;
+            while (lower < upper) {
+                int middle = (lower +upper) >>> 1;
+                if (this.breaks[middle] < position)
+                    lower = middle +1;
+                else upper = middle;
+            }
+            return lower;
+        }
+
+        /**
+         * Locates the line of the first character of a match.
+         * @param  start start of the match
+         * @return the line of the first character of the match
+         */
+        private int locateLine(int start) {
+            char digit = this.content.charAt(start);
+            if (digit == '\r'
+                    || digit == '\n')
+                start++;
+            return this.count(start) +1;
+        }
+
+        /**
+         * Locates the line position of the first character of a match.
+         * @param  start start of the match
+         * @return the line position of the first character of the match
+         */
+        private int locateCharacter(int start) {
+            char digit = this.content.charAt(start);
+            if (digit == '\r'
+                    || digit == '\n')
+                return 1;
+            int loop = 0;
+            for (int index = this.count(start) -1; index >= 0; index--) {
+                int position = this.breaks[index];
+                digit = this.content.charAt(position);
+                if (digit == '\r'
+                        && position +1 < start
+                        && this.content.charAt(position +1) == '\n')
+                    position++;
+                else if (digit != '\r'
+                        && digit != '\n')
+                    continue;
+                loop = position;
+                break;
+            }
+            return (start -loop) +1;
+        }
+    }
+
+    /**
+     * Internal class to use conditions.
+     * Conditions are inclusions and exclusions for files and content.
+     */
+    private static class Condition {
+
+        /** type */
+        private final Type type;
+
+        /** rule (pattern as plain text) */
+        private final String rule;
+
+        /** pattern (compiled rule) */
+        private final Pattern pattern;
+
+        /** literal text required by each match (case-folded, optional) */
+        private final String literal;
+        
+        /**
+         * Constructor, creates a new Condition object. 
+         * @param type type
+         * @param rule rule
+         */
+        private Condition(Type type, String rule) {
+            this.type = type;
+            switch (this.type) {
+                case FILE:
+                    rule = rule.trim();
+                    rule = rule.replace('\\', '/');
+                    rule = rule.replaceAll("\\/+", "/");
+                    rule = Pattern.quote(rule);
+                    rule = rule.replaceAll("\\*", "\\\\E.*\\\\Q");
+                    rule = rule.replaceAll("\\?", "\\\\E.\\\\Q");
+                    rule = "(" + rule + ")";
+                    this.rule = rule;
+                    this.pattern = Pattern.compile(this.rule);
+                    this.literal = null;
+                    break;
+
+                case CONTENT:
+                    this.rule = rule;
+                    this.pattern = Pattern.compile(this.rule);
+                    this.literal = Condition.locateLiteral(this.rule);
+                    break;
+                    
+                default:
+                    throw new RuntimeException("Not supported condition type found");
+            }
+        }
+        
+        /**
+         * Skips a character class in a rule.
+         * @param  rule   rule
+         * @param  offset position after the opening bracket
+         * @return the position after the closing bracket
+         */
+        private static int skipClass(String rule, int offset) {
+            if (offset < rule.length()
+                    && rule.charAt(offset) == '^')
+                offset++;
+            if (offset < rule.length()
+                    && rule.charAt(offset) == ']')
+                offset++;
+            while (offset < rule.length()) {
+                char digit = rule.charAt(offset++);
+                if (digit == '\\'
+                        && rule.startsWith("Q", offset)) {
+                    int end = rule.indexOf("\\E", offset);
+                    offset = end < 0 ? rule.length() : end +2;
+                } else if (digit == '\\')
+                    offset++;
+                else if (digit == '[')
+                    offset = Condition.skipClass(rule, offset);
+                else if (digit == ']')
+                    break;
+            }
+            return Math.min(offset, rule.length());
+        }
+
+        /**
+         * Skips a group in a rule.
+         * @param  rule   rule
+         * @param  offset position after the opening parenthesis
+         * @return the position after the closing parenthesis
+         */
+        private static int skipGroup(String rule, int offset) {
+            while (offset < rule.length()) {
+                char digit = rule.charAt(offset++);
+                if (digit == '\\'
+                        && rule.startsWith("Q", offset)) {
+                    int end = rule.indexOf("\\E", offset);
+                    offset = end < 0 ? rule.length() : end +2;
+                } else if (digit == '\\')
+                    offset++;
+                else if (digit == '[')
+                    offset = Condition.skipClass(rule, offset);
+                else if (digit == '(')
+                    offset = Condition.skipGroup(rule, offset);
+                else if (digit == ')')
+                    break;
+            }
+            return Math.min(offset, rule.length());
+        }
+
+        /**
+         * Ends the currently collected literal text and returns the longer of
+         * the previous and the collected literal text.
+         * @param  literal previous literal text
+         * @param  buffer  collected literal text, which is then reset
+         * @return the longer of both literal texts
+         */
+        private static String retainLiteral(String literal, StringBuilder buffer) {
+            if (buffer.length() > literal.length())
+                literal = buffer.toString();
+            buffer.setLength(0);
+            return literal;
+        }
+
+        /**
+         * Determines the longest literal text that each match of a rule must
+         * contain, which is used by the prefilter. Only the top level of the
+         * rule is analyzed: groups, character classes, predefined classes and
+         * back references are not literal, optional characters end a literal.
+         * For alternations at the top level and the comments mode, a required
+         * literal cannot be determined. The literal is case-folded, so it is
+         * also found for case-insensitive rules.
+         * @param  rule rule
+         * @return the longest required literal, otherwise null
+         */
+        private static String locateLiteral(String rule) {
+
+            final int PART = -1;
+            final int BOUNDARY = -2;
+
+            String literal = "";
+            StringBuilder buffer = new StringBuilder();
+            for (int offset = 0; offset < rule.length();) {
+
+                // Each part of the rule is either a literal character, a part
+                // that matches characters but is not literal, or a boundary
+                // that does not match characters.
+                int digit = rule.charAt(offset++);
+                if (digit == '|')
+                    return null;
+                if (digit == '^'
+                        || digit == '$')
+                    digit = BOUNDARY;
+                else if (digit == '.')
+                    digit = PART;
+                else if (digit == '[') {
+                    offset = Condition.skipClass(rule, offset);
+                    digit = PART;
+                } else if (digit == '(') {
+                    // Inline flags change the mode for the following parts,
+                    // the comments mode changes the meaning of the literals.
+                    Matcher matcher = Pattern.compile("^\\?[a-zA-Z\\-]*\\)").matcher(rule).region(offset, rule.length());
+                    if (matcher.lookingAt()) {
+                        if (matcher.group().contains("x"))
+                            return null;
+                        offset = matcher.end();
+                        digit = BOUNDARY;
+                    } else {
+                        offset = Condition.skipGroup(rule, offset);
+                        digit = PART;
+                    }
+                } else if (digit == '\\') {
+                    if (offset >= rule.length())
+                        return null;
+                    digit = rule.charAt(offset++);
+                    if (digit == 'Q') {
+                        int end = rule.indexOf("\\E", offset);
+                        end = end < 0 ? rule.length() : end;
+                        for (; offset < end -1; offset++)
+                            if (Character.isSurrogate(rule.charAt(offset)))
+                                literal = Condition.retainLiteral(literal, buffer);
+                            else buffer.append(Prefilter.fold(rule.charAt(offset)));
+                        digit = offset < end ? rule.charAt(offset) : BOUNDARY;
+                        offset = Math.min(end +2, rule.length());
+                    } else if ("tnrfae".indexOf(digit) >= 0)
+                        digit = "\t\n\r\f\u0007\u001B".charAt("tnrfae".indexOf(digit));
+                    else if (digit == 'c'
+                            && offset < rule.length())
+                        digit = rule.charAt(offset++) ^ 64;
+                    else if (digit == 'x'
+                            || digit == 'u'
+                            || digit == '0') {
+                        String expression = digit == 'x' ? "\\{[0-9a-fA-F]{1,6}\\}|[0-9a-fA-F]{2}"
+                                : digit == 'u' ? "[0-9a-fA-F]{4}" : "[0-3][0-7]{2}|[0-7]{1,2}";
+                        Matcher matcher = Pattern.compile(expression).matcher(rule).region(offset, rule.length());
+                        if (!matcher.lookingAt())
+                            return null;
+                        int value = Integer.parseInt(matcher.group().replaceAll("[\\{\\}]", ""), digit == '0' ? 8 : 16);
+                        digit = value > Character.MAX_VALUE ? PART : value;
+                        offset = matcher.end();
+                    } else if (Character.isLetterOrDigit(digit)) {
+                        // Predefined classes, boundaries, properties, named
+                        // groups and back references are not literal, their
+                        // arguments and further digits are skipped.
+                        Matcher matcher = Pattern.compile("\\{[^\\}]*\\}|<[^>]*>|\\d+").matcher(rule).region(offset, rule.length());
+                        if ((digit == 'p' || digit == 'P')
+                                && !matcher.lookingAt())
+                            offset++;
+                        else if (matcher.lookingAt()
+                                && (Character.isDigit(digit)
+                                        || !Character.isDigit(rule.charAt(offset))))
+                            offset = matcher.end();
+                        digit = "bBAGZz".indexOf(digit) >= 0 ? BOUNDARY : PART;
+                    }
+                } else if (digit == '*'
+                        || digit == '+'
+                        || digit == '?'
+                        || digit == '{') {
+                    // Quantifiers without a part, e.g. after a boundary, are
+                    // skipped.
+                    if (digit == '{')
+                        offset = Math.max(offset, rule.indexOf('}', offset) +1);
+                    digit = BOUNDARY;
+                }
+
+                if (digit >= 0
+                        && Character.isSurrogate((char)digit))
+                    digit = PART;
+
+                // A quantifier with a minimum of zero makes the part optional,
+                // otherwise the part is repeated and only the literal text up
+                // to and from the part is contiguous.
+                int minimum = -1;
+                if (digit != BOUNDARY
+                        && offset < rule.length()
+                        && "?*+{".indexOf(rule.charAt(offset)) >= 0) {
+                    char quantifier = rule.charAt(offset++);
+                    minimum = quantifier == '+' ? 1 : 0;
+                    if (quantifier == '{') {
+                        int end = Math.max(offset, rule.indexOf('}', offset));
+                        minimum = rule.substring(offset, end).matches("^\\s*0*\\s*(,.*)?$") ? 0 : 1;
+                        offset = Math.min(end +1, rule.length());
+                    }
+                    if (offset < rule.length()
+                            && (rule.charAt(offset) == '?'
+                                    || rule.charAt(offset) == '+'))
+                        offset++;
+                }
+
+                if (digit == BOUNDARY)
+                    continue;
+                if (digit == PART
+                        || minimum == 0) {
+                    literal = Condition.retainLiteral(literal, buffer);
+                    continue;
+                }
+                buffer.append(Prefilter.fold((char)digit));
+                if (minimum < 0)
+                    continue;
+                literal = Condition.retainLiteral(literal, buffer);
+                buffer.append(Prefilter.fold((char)digit));
+            }
+
+            literal = Condition.retainLiteral(literal, buffer);
+            return literal.isEmpty() ? null : literal;
+        }
+        
+        /** Type of conditions */
+        private enum Type {
+            FILE,
+            CONTENT
+        }
+    }
+    
+    /** Condition for includes. */
+    private static class Include extends Condition {
+        
+        private Include(Condition.Type type, String rule) {
+            super(type, rule);
+        }
+    }
+    
+    /** Condition for excludes. */
+    private static class Exclude extends Condition {
+        
+        private Exclude(Condition.Type type, String rule) {
+            super(type, rule);
+        }
+    }
+
+    /**
+     * Internal class for the evaluation of the sub-conditions of a task.
+     * All sub-conditions must be fulfilled for a match of the primary pattern,
+     * so the result does not depend on the order of the checks. The plan
+     * learns from the reviews how often each condition rejects a match and
+     * how long the check takes, and checks the conditions with the best
+     * ratio of rejections to time first.
+     */
+    private static class Plan {
+
+        /** number of evaluations after which the order is determined again */
+        private static final int LEARNING = 256;
+
+        /** number of checks after which the learned values are halved */
+        private static final int FORGETTING = 65536;
+
+        /** sub-conditions of the task */
+        private final Condition[] conditions;
+
+        /** true for the sub-conditions that are exclusions */
+        private final boolean[] excludes;
+
+        /** order of the checks (indices of the sub-conditions) */
+        private volatile int[] order;
+
+        /** number of checks per condition */
+        private final long[] checks;
+
+        /** number of rejections per condition */
+        private final long[] rejections;
+
+        /** number of measured checks per condition */
+        private final long[] samples;
+
+        /** measured time of the checks per condition (nanoseconds) */
+        private final long[] durations;
+
+        /** number of evaluations since the order was determined */
+        private long evaluations;
+
+        /**
+         * Constructor, creates a new Plan object.
+         * @param conditions conditions of the task, the first is the primary
+         *     pattern and is not part of the plan
+         */
+        private Plan(Condition[] conditions) {
+            this.conditions = Arrays.copyOfRange(conditions, 1, conditions.length);
+            this.excludes = new boolean[this.conditions.length];
+            for (int loop = 0; loop < this.conditions.length; loop++)
+                this.excludes[loop] = this.conditions[loop] instanceof Exclude;
+            this.order = IntStream.range(0, this.conditions.length).toArray();
+            this.checks = new long[this.conditions.length];
+            this.rejections = new long[this.conditions.length];
+            this.samples = new long[this.conditions.length];
+            this.durations = new long[this.conditions.length];
+        }
+
+        /**
+         * Takes over the values of an evaluation and determines the order of
+         * the checks again, after enough evaluations. The conditions are
+         * sorted by rejections per time, conditions with equal values keep
+         * their order.
+         * @param evaluation evaluation
+         */
+        private synchronized void learn(Evaluation evaluation) {
+            long[] values = evaluation.values;
+            for (int loop = 0; loop < this.conditions.length; loop++) {
+                this.checks[loop] += values[loop *4];
+                this.rejections[loop] += values[loop *4 +1];
+                this.samples[loop] += values[loop *4 +2];
+                this.durations[loop] += values[loop *4 +3];
+                if (this.checks[loop] < Plan.FORGETTING)
+                    continue;
+                this.checks[loop] /= 2;
+                this.rejections[loop] /= 2;
+                this.samples[loop] /= 2;
+                this.durations[loop] /= 2;
+            }
+            this.evaluations += evaluation.evaluations;
+            if (this.evaluations < Plan.LEARNING)
+                return;
+            this.evaluations = 0;
+            double[] scores = new double[this.conditions.length];
+            for (int loop = 0; loop < this.conditions.length; loop++)
+                scores[loop] = ((this.rejections[loop] +1d) /(this.checks[loop] +2d))
+                        /((this.durations[loop] +1d) /(this.samples[loop] +1d));
+            this.order = IntStream.range(0, this.conditions.length).boxed()
+                    .sorted(Comparator.comparingDouble(index -> -scores[index]))
+                    .mapToInt(Integer::intValue).toArray();
+        }
+
+        /**
+         * Internal class for the evaluation of the matches of one review.
+         * The matchers of the conditions are created once and reused for
+         * all matches, the values are collected without synchronization and
+         * passed to the plan at the end of the review.
+         */
+        private static class Evaluation {
+
+            /** plan */
+            private final Plan plan;
+
+            /** matchers of the conditions (created on demand) */
+            private final Matcher[] matchers;
+
+            /** checks, rejections, samples and durations per condition */
+            private final long[] values;
+
+            /** number of evaluations */
+            private long evaluations;
+
+            /**
+             * Constructor, creates a new Evaluation object.
+             * @param plan plan
+             */
+            private Evaluation(Plan plan) {
+                this.plan = plan;
+                this.matchers = new Matcher[plan.conditions.length];
+                this.values = new long[plan.conditions.length *4];
+            }
+
+            /**
+             * Checks whether a match fulfills all sub-conditions. Every 16th
+             * check of a condition is measured.
+             * @param  source source
+             * @param  match  match of the primary pattern
+             * @return true if the match fulfills all sub-conditions
+             */
+            private boolean accept(Source source, String match) {
+                this.evaluations++;
+                CharSequence input = source.bind(match);
+                for (int index : this.plan.order) {
+                    Matcher matcher = this.matchers[index];
+                    if (matcher == null)
+                        matcher = this.matchers[index] = this.plan.conditions[index].pattern.matcher(input);
+                    else matcher.reset(input);
+                    int offset = index *4;
+                    boolean sampling = (this.values[offset] & 15) == 0;
+                    long timing = sampling ? System.nanoTime() : 0;
+                    boolean exists = matcher.find();
+                    this.values[offset]++;
+                    if (sampling) {
+                        this.values[offset +2]++;
+                        this.values[offset +3] += System.nanoTime() -timing;
+                    }
+                    if (exists == this.plan.excludes[index]) {
+                        this.values[offset +1]++;
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Internal class for the trace of the reviews of a task with PATCH.
+     * With option -x, PATCH repeats the review of a file until the content no
+     * longer changes. The trace is the text for the matcher and records for
+     * each search the range of the content that has been read and the result.
+     * The result of a search only depends on the characters read from the
+     * start of the region. Therefore, a search of the next review from the
+     * same position in a range that has not been changed has the same result
+     * and is taken from the trace. Only the searches that have read changed
+     * text are performed again, and only the changed range is compared to
+     * determine whether the content no longer changes. The searches of large
+     * files in chunks are also passed to the review as a trace.
+     */
+    private static class Trace implements CharSequence {
+
+        /** result of a search without match */
+        private static final int NONE = 0;
+
+        /** result of a search with a match rejected by the sub-conditions */
+        private static final int REJECTED = 1;
+
+        /**
+         * result of a search with a match that fulfills the sub-conditions
+         * (with PATCH only recorded if the patch does not change the content)
+         */
+        private static final int ACCEPTED = 2;
+
+        /** size of a record (offset, reach, result, start, end) */
+        private static final int RECORD = 5;
+
+        /** content */
+        private CharSequence content;
+
+        /** highest position read by the current search */
+        private int reach;
+
+        /** record of the current search (offset, reach, -, start, end) */
+        private final int[] search = new int[Trace.RECORD];
+
+        /** start of the match of the last recalled search */
+        private int start;
+
+        /** end of the match of the last recalled search */
+        private int end;
+
+        /** records of the current review */
+        private int[] records = new int[Trace.RECORD *64];
+
+        /** size of the records of the current review */
+        private int size;
+
+        /** first record of the current review after the last change */
+        private int pending;
+
+        /** records of the previous review in unchanged ranges */
+        private int[] previous = new int[Trace.RECORD *64];
+
+        /** size of the records of the previous review */
+        private int limit;
+
+        /** next record of the previous review */
+        private int position;
+
+        /** change of the length by the changes of the current review */
+        private int shift;
+
+        /** start of the first change of the current review (-1 none) */
+        private int first = -1;
+
+        /** end of the last change of the current review */
+        private int last;
+
+        /** number of the completed reviews */
+        private int reviews;
+
+        /**
+         * Sets the content for the matcher.
+         * @param  content content
+         * @return the trace as text for the matcher
+         */
+        private CharSequence bind(CharSequence content) {
+            this.content = content;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return this.content.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index > this.reach)
+                this.reach = index;
+            return this.content.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return this.content.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return this.content.toString();
+        }
+
+        /**
+         * Appends a record to the records of the current review.
+         * @param offset offset of the search
+         * @param reach  highest position read by the search
+         * @param result result of the search
+         * @param start  start of the match
+         * @param end    end of the match
+         */
+        private void append(int offset, int reach, int result, int start, int end) {
+            if (this.size >= this.records.length)
+                this.records = Arrays.copyOf(this.records, this.records.length *2);
+            this.records[this.size++] = offset;
+            this.records[this.size++] = reach;
+            this.records[this.size++] = result;
+            this.records[this.size++] = start;
+            this.records[this.size++] = end;
+        }
+
+        /**
+         * Takes the result of a search from the previous review, if the
+         * search started at the same position and has only read text that
+         * has not been changed since then. The start and the end of the match
+         * are then available as start and end of the trace.
+         * @param  offset offset of the search
+         * @return the result of the search, otherwise -1
+         */
+        private int recall(int offset) {
+            int position = offset -this.shift;
+            while (this.position < this.limit
+                    && this.previous[this.position] < position)
+                this.position += Trace.RECORD;
+            if (this.position >= this.limit
+                    || this.previous[this.position] != position)
+                return -1;
+            int reach = this.previous[this.position +1];
+            int result = this.previous[this.position +2];
+            this.start = this.previous[this.position +3] +this.shift;
+            this.end = this.previous[this.position +4] +this.shift;
+            this.position += Trace.RECORD;
+            this.append(offset, reach < Integer.MAX_VALUE ? reach +this.shift : reach,
+                    result, this.start, this.end);
+            return result;
+        }
+
+        /** Starts the trace of a search. */
+        private void search() {
+            this.reach = -1;
+        }
+
+        /**
+         * Ends the trace of a search. If the search has reached the end of the
+         * content, the search depends on the complete rest of the content.
+         * @param offset offset of the search
+         * @param start  start of the match
+         * @param end    end of the match
+         * @param ended  true if the search has reached the end of the content
+         */
+        private void found(int offset, int start, int end, boolean ended) {
+            this.search[0] = offset;
+            this.search[1] = ended ? Integer.MAX_VALUE : Math.max(this.reach, start);
+            this.search[3] = start;
+            this.search[4] = end;
+        }
+
+        /**
+         * Records the result of the last traced search.
+         * @param result result of the search
+         */
+        private void record(int result) {
+            this.append(this.search[0], this.search[1], result, this.search[3], this.search[4]);
+        }
+
+        /**
+         * Registers a change of the content. The records of the searches
+         * since the last change that have read the changed text become
+         * invalid.
+         * @param start  start of the changed range
+         * @param end    end of the changed range
+         * @param length length of the new text
+         */
+        private void change(int start, int end, int length) {
+            for (int index = this.pending; index < this.size; index += Trace.RECORD)
+                if (this.records[index +1] >= start)
+                    this.records[index +2] = -1;
+            this.pending = this.size;
+            this.shift += length -(end -start);
+            if (this.first < 0)
+                this.first = start;
+            this.last = start +length;
+        }
+
+        /**
+         * Ends a review and checks whether the content no longer changes.
+         * Like before, the first review is only settled for an empty content.
+         * If the review continues, the records of the searches in unchanged
+         * ranges are kept for the next review.
+         * @param  previous content before the review
+         * @param  content  content after the review
+         * @return true if the content no longer changes
+         */
+        private boolean isSettled(CharSequence previous, CharSequence content) {
+            boolean settled;
+            if (this.reviews++ <= 0)
+                settled = content.length() <= 0;
+            else if (this.first < 0)
+                settled = true;
+            else settled = previous.length() == content.length()
+                    && CharSequence.compare(previous.subSequence(this.first, this.last),
+                            content.subSequence(this.first, this.last)) == 0;
+            if (settled)
+                return true;
+            this.rewind();
+            return false;
+        }
+
+        /**
+         * Ends the records of the current review, the records of the searches
+         * in unchanged ranges are taken over by the next review.
+         */
+        private void rewind() {
+            int limit = 0;
+            for (int index = 0; index < this.size; index += Trace.RECORD) {
+                if (this.records[index +2] < 0)
+                    continue;
+                System.arraycopy(this.records, index, this.records, limit, Trace.RECORD);
+                limit += Trace.RECORD;
+            }
+            int[] records = this.previous;
+            this.previous = this.records;
+            this.records = records;
+            this.limit = limit;
+            this.size = 0;
+            this.pending = 0;
+            this.position = 0;
+            this.shift = 0;
+            this.first = -1;
+        }
+    }
+
+    /**
+     * Internal class for the search of large files in chunks (option -c).
+     * For DETECT, the content is divided into chunks that are searched in
+     * parallel from the start of each chunk, like the review does. The search
+     * of a chunk reads at most the maximum match span beyond the end of the
+     * chunk. A match that depends on further text is searched again in the
+     * complete content, a search without a match in a chunk means that no
+     * match that is not longer than the span starts in the rest of the chunk.
+     * The searches of the chunks are then joined in the order of the review:
+     * Where the review searches from a range that a chunk has searched, the
+     * result of the chunk is used, otherwise it searches by itself. This
+     * requires matches that do not depend on the start of the region, so
+     * patterns with anchors, word boundaries or lookbehinds are not split.
+     */
+    private static class Partition {
+
+        /** task */
+        private final Task task;
+
+        /** source */
+        private final Source source;
+
+        /** content */
+        private final CharSequence content;
+
+        /** start of the chunk */
+        private final int start;
+
+        /** end of the chunk */
+        private final int end;
+
+        /** end of the region of the searches (end of the chunk + span) */
+        private final int limit;
+
+        /** searches of the chunk (offset, start and end of the match, result) */
+        private int[] searches = new int[64];
+
+        /** size of the searches */
+        private int size;
+
+        /**
+         * Constructor, creates a new Partition object.
+         * @param task    task
+         * @param source  source
+         * @param content content
+         * @param start   start of the chunk
+         * @param end     end of the chunk
+         */
+        private Partition(Task task, Source source, CharSequence content, int start, int end) {
+            this.task = task;
+            this.source = source;
+            this.content = content;
+            this.start = start;
+            this.end = end;
+            this.limit = (int)Math.min(content.length(), end +source.engine.settings.span *1024L);
+        }
+
+        /**
+         * Checks whether the matches of a pattern can depend on the start of
+         * the region, which means anchors, word boundaries and lookbehinds.
+         * Characters in character classes and escaped characters are ignored.
+         * @param  rule rule of the pattern
+         * @return true if the matches can depend on the start of the region
+         */
+        private static boolean isAnchored(String rule) {
+            int classes = 0;
+            for (int loop = 0; loop < rule.length(); loop++) {
+                char digit = rule.charAt(loop);
+                if (digit == '\\') {
+                    if (++loop >= rule.length())
+                        break;
+                    digit = rule.charAt(loop);
+                    if (digit == 'Q') {
+                        loop = rule.indexOf("\\E", loop);
+                        if (loop < 0)
+                            break;
+                        loop++;
+                    } else if (classes <= 0
+                            && "AGbB".indexOf(digit) >= 0)
+                        return true;
+                } else if (digit == '[') {
+                    classes++;
+                    if (loop +1 < rule.length()
+                            && rule.charAt(loop +1) == '^')
+                        loop++;
+                } else if (digit == ']' && classes > 0) {
+                    classes--;
+                } else if (classes <= 0
+                        && (digit == '^'
+                                || rule.startsWith("(?<=", loop)
+                                || rule.startsWith("(?<!", loop)))
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * Checks whether a task can search a content in chunks. These are
+         * large contents of reviews without changes (DETECT or without
+         * option -x) and without time budget.
+         * @param  task    task
+         * @param  source  source
+         * @param  content content
+         * @return true if the task can search the content in chunks
+         */
+        private static boolean isApplicable(Task task, Source source, CharSequence content) {
+            Settings settings = source.engine.settings;
+            return settings.chunk > 0
+                    && settings.budget <= 0
+                    && settings.limit <= 0
+                    && (task.command.equals("DETECT")
+                            || !settings.replace)
+                    && content.length() >= settings.chunk *2048L
+                    && !Partition.isAnchored(task.conditions[0].rule);
+        }
+
+        /**
+         * Searches a content in chunks and returns the searches of the review
+         * as a trace.
+         * @param  task    task
+         * @param  source  source
+         * @param  content content
+         * @return the searches of the review as trace
+         */
+        private static Trace search(Task task, Source source, CharSequence content) {
+
+            int size = source.engine.settings.chunk *1024;
+            Partition[] partitions = new Partition[content.length() /size];
+            for (int loop = 0; loop < partitions.length; loop++)
+                partitions[loop] = new Partition(task, source, content, loop *size,
+                        loop < partitions.length -1 ? (loop +1) *size : content.length());
+            Arrays.stream(partitions).parallel().forEach(Partition::search);
+
+            // The review starts the search at the offset, the leftmost match
+            // is searched from the position that is moved from chunk to chunk
+            // when a chunk has no further match.
+            Trace trace = new Trace();
+            Matcher matcher = task.conditions[0].pattern.matcher(content);
+            Plan.Evaluation evaluation = new Plan.Evaluation(task.plan);
+            int[] pointers = new int[partitions.length];
+            for (int offset = 0; offset < content.length();) {
+                int position = offset;
+                int result = -1;
+                int start = 0;
+                int end = 0;
+                while (result < 0) {
+                    int index = Math.min(position /size, partitions.length -1);
+                    Partition partition = partitions[index];
+                    int pointer = pointers[index];
+                    while (pointer < partition.size
+                            && partition.searches[pointer +1] < position)
+                        pointer += 4;
+                    pointers[index] = pointer;
+                    if (pointer < partition.size
+                            && partition.searches[pointer] <= position) {
+                        result = partition.searches[pointer +3];
+                        start = partition.searches[pointer +1];
+                        end = partition.searches[pointer +2];
+                    } else {
+                        int[] search = partition.search(matcher, evaluation, position);
+                        result = search[2];
+                        start = search[0];
+                        end = search[1];
+                    }
+                    if (result == Trace.NONE
+                            && index < partitions.length -1) {
+                        position = partition.end;
+                        result = -1;
+                    }
+                }
+                trace.append(offset, 0, result, start, end);
+                if (result == Trace.NONE)
+                    break;
+                offset = result == Trace.ACCEPTED ? end +1 : start +1;
+            }
+            task.plan.learn(evaluation);
+            trace.rewind();
+            return trace;
+        }
+
+        /**
+         * Searches the leftmost match from a position in the chunk.
+         * @param  matcher    matcher for the content
+         * @param  evaluation evaluation of the sub-conditions
+         * @param  position   position
+         * @return start and end of the match and the result of the search
+         */
+        private int[] search(Matcher matcher, Plan.Evaluation evaluation, int position) {
+            matcher.region(position, this.limit);
+            boolean found = matcher.find();
+            if (found
+                    && matcher.hitEnd()
+                    && this.limit < this.content.length()) {
+                matcher.region(position, this.content.length());
+                found = matcher.find();
+            }
+            if (!found)
+                return new int[] {this.end, this.end, Trace.NONE};
+            int start = matcher.start();
+            int end = matcher.end();
+            if (this.task.plan.conditions.length > 0
+                    && !evaluation.accept(this.source, this.content.subSequence(start, end).toString()))
+                return new int[] {start, end, Trace.REJECTED};
+            return new int[] {start, end, Trace.ACCEPTED};
+        }
+
+        /** Searches the chunk like the review from the start of the chunk. */
+        private void search() {
+            boolean profile = this.source.engine.settings.profile;
+            long timing = profile ? System.nanoTime() : 0;
+            Matcher matcher = this.task.conditions[0].pattern.matcher(this.content);
+            Plan.Evaluation evaluation = new Plan.Evaluation(this.task.plan);
+            for (int offset = this.start; offset < this.end;) {
+                int[] search = this.search(matcher, evaluation, offset);
+                if (this.size >= this.searches.length)
+                    this.searches = Arrays.copyOf(this.searches, this.searches.length *2);
+                this.searches[this.size++] = offset;
+                this.searches[this.size++] = search[0];
+                this.searches[this.size++] = search[1];
+                this.searches[this.size++] = search[2];
+                if (search[2] == Trace.NONE)
+                    break;
+                offset = search[2] == Trace.ACCEPTED ? search[1] +1 : search[0] +1;
+            }
+            this.task.plan.learn(evaluation);
+            if (profile)
+                this.task.statistics.matching.add(System.nanoTime() -timing);
+        }
+    }
+
+    /**
+     * Inner class for a Task.
+     * A Task is one part of the code analysis.
+     */
+    private static class Task {
+
+        /** line number */
+        private long number;        
+
+        /** index in the list of tasks */
+        private int index;
+        
+        /** conditions (file + content) */
+        private Condition[] conditions;
+
+        /** plan of the sub-conditions */
+        private Plan plan;
+
+        /** pattern of the included files (optional) */
+        private Pattern include;
+
+        /** pattern of the excluded files (optional) */
+        private Pattern exclude;
+
+        /** command */
+        private String command;
+
+        /** action */
+        private String action;
+
+        /** statistics of the task */
+        private final Statistics statistics = new Statistics();
+
+        /** Constructor, creates a new Task object. */
+        private Task() {
+        }
+        
+        /**
+         * Decodes hexadecimal characters in a text.
+         * @param  text text to be decoded
+         * @return the decoded text
+         * @throws UnsupportedEncodingException
+         *     In case of invalid encoding.
+         */
+        private static String decode(String text)
+                throws UnsupportedEncodingException {
+            text = text.replaceAll("\\s", "\\\\x20");
+            text = text.replaceAll("\\%", "\\\\x25");
+            text = text.replaceAll("\\+", "\\\\x2B");
+            text = text.replaceAll("(?i)\\\\x([0-9a-f]{2})", "%$1");
+            return URLDecoder.decode(text, StandardCharsets.ISO_8859_1);
+        }
+        
+        /**
+         * Creates file conditions for the passed expression(s).
+         * @param  expression expression(s)
+         * @return content file for the passed expression(s)
+         * @throws ReviewParserException
+         *     In case if errors are found in the expression(s).
+         * @throws UnsupportedEncodingException
+         *     In case of invalid encoding.
+         */        
+        private static Condition[] parseFileConditions(String expression)
+                throws ReviewParserException, UnsupportedEncodingException {
+            
+            expression = expression.replaceAll("(?:^|\\s+)([\\+\\-])\\s+", " $1").trim();
+            if (expression.isEmpty()
+                    || expression.matches("(^|\\s)(?![\\+\\-])"))
+                throw new ReviewParserException("Invalid file condition found");
+
+            List<Condition> conditions = new ArrayList<>();
+            for (String rule : expression.split("\\s+")) {
+                if (rule.startsWith("+"))
+                    conditions.add(new Include(Condition.Type.FILE, Task.decode(rule.substring(1))));
+                else if (rule.startsWith("-"))
+                    conditions.add(new Exclude(Condition.Type.FILE, Task.decode(rule.substring(1))));
+                else throw new ReviewParserException("Invalid file condition found");     
+            }
+            
+            return conditions.toArray(new Condition[0]);
+        }
+        
+        /**
+         * Creates content conditions for the passed expression(s).
+         * @param  expressions expression(s)
+         * @return content conditions for the passed expression(s)
+         * @throws ReviewParserException
+         *     In case if errors are found in the expression(s).
+         * @throws UnsupportedEncodingException
+         *     In case of invalid encoding.
+         */
+        private static Condition[] parseContentConditions(String... expressions)
+                throws ReviewParserException, UnsupportedEncodingException {
+            
+            if (expressions == null
+                    || expressions.length <= 0)
+                throw new ReviewParserException("Invalid pattern found");
+            
+            String expression = String.join(" ", expressions).trim();
+            expression = expression.replaceAll("([+-])\\s+", "$1");
+            List<Condition> conditions = new ArrayList<>();
+            for (String rule : expression.split("\\s+")) {
+                if (conditions.isEmpty())
+                    conditions.add(new Include(Condition.Type.CONTENT, Task.decode(rule)));
+                else if (rule.startsWith("+"))
+                    conditions.add(new Include(Condition.Type.CONTENT, Task.decode(rule.substring(1))));
+                else if (rule.startsWith("-"))
+                    conditions.add(new Exclude(Condition.Type.CONTENT, Task.decode(rule.substring(1))));
+                else throw new ReviewParserException("Invalid condition found");
+                // the first condition must be a include
+                if (conditions.size() == 1
+                        && conditions.getFirst() instanceof Exclude)
+                    throw new ReviewParserException("Invalid pattern found");
+            }
+            
+            return conditions.toArray(new Condition[0]);
+        }
+        
+        /**
+         * Creates a file pattern based on the passed conditions.
+         * The file conditions of the passed type are combined into one
+         * pattern, which is applied to the canonical path of the files.
+         * @param  conditions condition(s)
+         * @param  type       type of the conditions (Include or Exclude)
+         * @return a file pattern based on the passed conditions, otherwise
+         *     null if there is no file condition of the type
+         */
+        private static Pattern createFilePattern(Condition[] conditions, Class<? extends Condition> type) {
+            String expression = String.join("|", Arrays.stream(conditions).filter(
+                    condition -> Condition.Type.FILE.equals(condition.type)
+                            && type.isInstance(condition)).map(condition -> condition.rule).toArray(String[]::new)).trim();
+            return !expression.isEmpty() ? Pattern.compile("(?i)^" + expression + "$") : null;
+        }
+        
+        /**
+         * Creates a task based on the information of the passed section.
+         * @param  section
+         * @return a task based on the information of the passed section
+         * @throws ReviewParserException
+         *     In case if errors are found in the section.
+         */
+        private static Task parse(String section)
+                throws ReviewParserException {
+            
+            String[] lines = section.split("(\\s*\\R\\s*)+");
+            if (lines.length < 3)
+                throw new ReviewParserException("Invalid task structure found");
+            
+            List<Condition> conditions;
+            try {conditions = new ArrayList<>(Arrays.asList(Task.parseFileConditions(lines[1])));
+            } catch (UnsupportedEncodingException exception) {
+                throw new ReviewParserException("Invalid encoded filter found");
+            }
+            try {conditions.addAll(Arrays.asList(Task.parseContentConditions(Arrays.copyOfRange(lines, 2, lines.length -1))));
+            } catch (PatternSyntaxException exception) {
+                throw new ReviewParserException("Invalid pattern expression found");
+            } catch (UnsupportedEncodingException exception) {
+                throw new ReviewParserException("Invalid encoded pattern found");
+            }
+            
+            Task task = new Task();
+            task.number = Long.valueOf(lines[0].replaceAll("^#(\\d+)$", "$1"));
+            task.conditions = conditions.toArray(new Condition[0]);
+            task.include = Task.createFilePattern(task.conditions, Include.class);
+            task.exclude = Task.createFilePattern(task.conditions, Exclude.class);
+            task.conditions = Arrays.stream(task.conditions).filter(condition -> Condition.Type.CONTENT.equals(condition.type)).toArray(Condition[]::new);
+            if (task.conditions.length <= 0)
+                throw new ReviewParserException("Invalid task structure found");
+            task.plan = new Plan(task.conditions);
+            String pattern = "(?i)^(DETECT|PATCH|REMOVE)(?:\\s+(.*))*$";
+            String line = lines[lines.length -1].trim();
+            if (!line.matches(pattern))
+                throw new ReviewParserException("Invalid task action found");
+            task.command = line.replaceAll(pattern, "$1").toUpperCase();
+            try {task.action = Task.decode(line.replaceAll("^\\S+\\s+", ""));
+            } catch (UnsupportedEncodingException exception) {
+                throw new ReviewParserException("Invalid encoded action found");
+            }
+            return task;            
+        }
+        
+        /**
+         * Performs the review task for a file.
+         * The worker performs the task only for the files selected by the
+         * file filters of the task.
+         * Changes by PATCH and REMOVE are only applied to the content of the
+         * source, the worker writes them at the end of the review of the file.
+         * @param  source source
+         * @return the outcome of the task, otherwise null in case of errors
+         */
+        private Outcome perform(Source source) {
+            
+            Settings settings = source.engine.settings;
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            PrintStream output = new PrintStream(stream);
+
+            long founds = 0;
+            long corrections = 0;
+            long reviews = 0;
+
+            Plan.Evaluation evaluation = null;
+            
+            try {
+                File file = source.file;
+
+                CharSequence compare = "";
+                CharSequence content = "";
+
+                // Only PATCH repeats the review, the trace allows to take
+                // over the searches in unchanged ranges. Large files are
+                // searched in chunks for DETECT, which also results in a trace.
+                Trace trace = this.command.equals("PATCH") && settings.replace ? new Trace() : null;
+                
+                while (true) {
+
+                    source.statistics.reviews.increment();
+                    this.statistics.reviews.increment();
+                    reviews++;
+                    
+                    // One matcher is used for the complete content. The search
+                    // starts with offset via the region, which behaves like a
+                    // substring from the offset without copying the content.
+                    // After changes, the matcher is reset to the new content.
+                    content = source.getContent();
+                    this.statistics.volume.add(content.length());
+                    if (trace == null
+                            && Partition.isApplicable(this, source, content))
+                        trace = Partition.search(this, source, content);
+                    Matcher matcher = this.conditions[0].pattern.matcher(
+                            source.bind(trace != null ? trace.bind(content) : content));
+                    for (int offset = 0; offset < content.length(); offset++) {
+
+                        int start;
+                        int end;
+                        int result = trace != null ? trace.recall(offset) : -1;
+                        if (result < 0) {
+                            matcher.region(offset, content.length());
+                            source.startBudget();
+                            if (trace != null)
+                                trace.search();
+                            long timing = settings.profile ? System.nanoTime() : 0;
+                            boolean found = matcher.find();
+                            if (settings.profile)
+                                this.statistics.matching.add(System.nanoTime() -timing);
+                            start = found ? matcher.start() : offset;
+                            end = found ? matcher.end() : offset;
+                            if (trace != null)
+                                trace.found(offset, start, end, !found || matcher.hitEnd());
+                            if (!found) {
+                                if (trace != null)
+                                    trace.record(Trace.NONE);
+                                break;
+                            }
+                        } else if (result == Trace.NONE) {
+                            break;
+                        } else {
+                            start = trace.start;
+                            end = trace.end;
+                        }
+
+                        String match = content.subSequence(start, end).toString();
+                        if (result == Trace.REJECTED) {
+                            offset = start;
+                            continue;
+                        } else if (result < 0
+                                && this.plan.conditions.length > 0) {
+                            long timing = settings.profile ? System.nanoTime() : 0;
+                            if (evaluation == null)
+                                evaluation = new Plan.Evaluation(this.plan);
+                            boolean relevant = evaluation.accept(source, match);
+                            if (settings.profile)
+                                this.statistics.evaluating.add(System.nanoTime() -timing);
+                            
+                            if (!relevant) {
+                                if (trace != null)
+                                    trace.record(Trace.REJECTED);
+                                offset = start;
+                                continue;
+                            }
+                        }
+
+                        source.statistics.founds.increment();
+                        this.statistics.founds.increment();
+                        founds++;
+
+                        if (stream.size() <= 0
+                                && settings.format == null) {
+                            output.printf("%n");
+                            output.printf("%s%n", file);
+                            output.printf("Match from line %s%n", this.number);
+                            String rule = this.conditions[0].rule;
+                            if (rule.trim().isEmpty())
+                                rule = "-- no output, white spaces only";
+                            if (rule.length() > 72)
+                                rule = rule.substring(0, 69) + "...";
+                            output.printf("Pattern %s%n", rule);
+                        }
+                        
+                        Lines lines = source.getLines();
+                        int line = lines.locateLine(start);
+                        int column = lines.locateCharacter(start);
+                        if (settings.format != null
+                                || source.findings != null) {
+                            Finding finding = new Finding(file.getPath(), this.number, this.command,
+                                    settings.replace && !this.command.equals("DETECT"), line, column, start, end, match,
+                                    this.command.equals("DETECT") ? this.action.trim() : "");
+                            if (source.findings != null)
+                                source.findings.add(finding);
+                            if (settings.format != null)
+                                output.println(Reporter.record(finding));
+                        }
+                        String location = String.format("line %s from character %s", line, column);
+
+                        if (this.command.equals("DETECT")
+                                || !settings.replace) {
+                            String message = match.replaceAll("\\s", " ").trim();
+                            if (!message.isEmpty())
+                                message = "DETECTED " + location + ": " + message;
+                            else message = "DETECTED " + location;
+                            if (message.length() > 74)
+                                message = message.substring(0, 71) + "...";
+                            if (settings.format == null)
+                                output.println(message);
+                            offset = end;
+
+                            if (this.command.equals("DETECT")
+                                    && !this.action.trim().isEmpty()
+                                    && settings.format == null)
+                                output.println(this.action.trim());
+                            
+                        } else if (this.command.equals("REMOVE")
+                                || this.action.isEmpty()) {
+                            // Without change, the content and the matcher remain.
+                            if (start < end) {
+                                content = content.subSequence(0, start).toString() + content.subSequence(end, content.length());
+                                source.content = content;
+                                matcher.reset(source.bind(trace != null ? trace.bind(content) : content));
+                                if (trace != null)
+                                    trace.change(start, end, 0);
+                            } else if (trace != null
+                                    && result < 0)
+                                trace.record(Trace.ACCEPTED);
+                            source.statistics.corrections.increment();
+                            this.statistics.corrections.increment();
+                            corrections++;
+                            if (settings.format == null)
+                                output.println("PATCHED " + location);
+
+                        } else {
+                            String patch = this.conditions[0].pattern.matcher(source.bind(match)).replaceAll(this.action);
+                            if (!patch.equals(match)) {
+                                content = content.subSequence(0, start) + patch + content.subSequence(end, content.length());
+                                source.content = content;
+                                matcher.reset(source.bind(trace != null ? trace.bind(content) : content));
+                                if (trace != null)
+                                    trace.change(start, end, patch.length());
+                            } else if (trace != null
+                                    && result < 0)
+                                trace.record(Trace.ACCEPTED);
+                            match = patch;
+                            source.statistics.corrections.increment();
+                            this.statistics.corrections.increment();
+                            corrections++;
+                            if (settings.format == null)
+                                output.println("PATCHED " + location);
+                            offset = start +match.length() -1;
+                        }
+                    }
+                    
+                    if (!this.command.equals("PATCH")
+                            || !settings.replace
+                            || trace.isSettled(compare, content))
+                        break;
+                    compare = content;
+                }
+                
+                if (evaluation != null)
+                    this.plan.learn(evaluation);
+                if (stream.size() > 0)
+                    source.report(stream.toString());
+                return new Outcome(stream.toString(), founds, corrections, reviews);
+                
+           } catch (ReviewBudgetException exception) {
+                source.fail(this.number, String.format("Time budget exceeded in section #%s for %s", this.number, source.file));
+                source.print("%nERROR: Time budget exceeded in section #%s for %s%n", String.valueOf(this.number), source.file);
+                source.statistics.errors.increment();
+                this.statistics.errors.increment();
+                return null;
+
+           } catch (Throwable throwable) {
+                source.fail(this.number, throwable.toString());
+                source.print("%nERROR: Occurred in section #%s%n", String.valueOf(this.number));
+                source.print(throwable);
+                source.statistics.errors.increment();
+                this.statistics.errors.increment();
+                return null;
+            }
+        }
+
+        /**
+         * Outputs the outcome of a previous review of the task again and
+         * counts it like a performed review.
+         * @param source  source
+         * @param outcome outcome of the previous review
+         */
+        private void replay(Source source, Outcome outcome) {
+            if (!outcome.output.isEmpty())
+                source.report(outcome.output);
+            source.statistics.founds.add(outcome.founds);
+            source.statistics.corrections.add(outcome.corrections);
+            source.statistics.reviews.add(outcome.reviews);
+            this.statistics.founds.add(outcome.founds);
+            this.statistics.corrections.add(outcome.corrections);
+            this.statistics.reviews.add(outcome.reviews);
+        }
+    }
+}
\ No newline at end of file